@@ -0,0 +1,58 @@
+package com.hui.common.benchmarks;
+
+import com.hui.common.dao.core.BaseDaoFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * <code>H2Fixture</code>
+ * <desc>
+ * 描述： 基准测试用的H2内存库(MySQL模式), 建好t_user表并可预置数据
+ * <desc/>
+ * Creation Time: 2019/12/27 20:10.
+ *
+ * @author Gary.Hu
+ */
+public final class H2Fixture {
+
+    public static final String TABLE = "t_user";
+    public static final String PRIMARY_KEY = "user_id";
+
+    private H2Fixture() {
+    }
+
+    public static DataSource dataSource(String dbName) throws SQLException {
+        String url = "jdbc:h2:mem:" + dbName + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        DataSource dataSource = BaseDaoFactory.dataSourceInstance("org.h2.Driver", url, "sa", "");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("create table if not exists t_user (user_id bigint auto_increment primary key, "
+                    + "user_name varchar(64), email varchar(64))");
+        }
+        return dataSource;
+    }
+
+    /**
+     * 追加rows行数据
+     */
+    public static void seed(DataSource dataSource, int rows) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("insert into t_user (user_name,email) values (?,?)")) {
+            for (int i = 0; i < rows; i++) {
+                statement.setString(1, "user" + i);
+                statement.setString(2, "user" + i + "@hui.com");
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    public static void truncate(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("truncate table t_user");
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.hui.common.benchmarks;
+
+import com.hui.common.dao.core.BaseDaoFactory;
+import com.hui.common.dao.core.BaseDaoStrategy;
+import com.hui.common.dao.core.MySqlDao;
+import com.hui.common.dao.core.RunnerDao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sql.DataSource;
+import java.io.Serializable;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <code>InsertBenchmark</code>
+ * <desc>
+ * 描述： 插入rows行: 逐行单条插入、addBatch批量提交、改写为多行VALUES的批量提交. 每轮迭代前清空表
+ * <desc/>
+ * Creation Time: 2019/12/27 21:20.
+ *
+ * @author Gary.Hu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InsertBenchmark {
+
+    @Param({"100"})
+    private int rows;
+
+    private DataSource dataSource;
+    private MySqlDao<Long> batchDao;
+    private MySqlDao<Long> rewriteDao;
+    private List<Map<String, String>> maps;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setup() throws SQLException {
+        dataSource = H2Fixture.dataSource("insert_" + rows);
+        RunnerDao runnerDao = new RunnerDao(dataSource);
+        batchDao = (MySqlDao<Long>) BaseDaoFactory.createBaseDao(runnerDao, H2Fixture.TABLE, H2Fixture.PRIMARY_KEY, BaseDaoStrategy.MYSQL);
+        rewriteDao = (MySqlDao<Long>) BaseDaoFactory.createBaseDao(runnerDao, H2Fixture.TABLE, H2Fixture.PRIMARY_KEY, BaseDaoStrategy.MYSQL);
+        rewriteDao.setRewriteBatchedStatements(true);
+        maps = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Map<String, String> map = new HashMap<>(4);
+            map.put("user_name", "user" + i);
+            map.put("email", "user" + i + "@hui.com");
+            maps.add(map);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void truncate() throws SQLException {
+        H2Fixture.truncate(dataSource);
+    }
+
+    /**
+     * 每行一次往返
+     */
+    @Benchmark
+    public Long singleInsert() throws SQLException {
+        Long key = null;
+        for (Map<String, String> map : maps) {
+            key = batchDao.insert(map);
+        }
+        return key;
+    }
+
+    @Benchmark
+    public List<Serializable> batchInsert() throws SQLException {
+        return batchDao.batchInsert(maps);
+    }
+
+    @Benchmark
+    public List<Serializable> rewrittenBatchInsert() throws SQLException {
+        return rewriteDao.batchInsert(maps);
+    }
+}
@@ -0,0 +1,82 @@
+package com.hui.common.benchmarks;
+
+import com.hui.common.dao.core.BaseDao;
+import com.hui.common.dao.core.BaseDaoFactory;
+import com.hui.common.dao.core.PageResult;
+import com.hui.common.dao.core.RunnerDao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <code>PagingBenchmark</code>
+ * <desc>
+ * 描述： 在10000行中读取offset处的一页: limit offset分页与按主键keyset分页
+ * <desc/>
+ * Creation Time: 2019/12/27 21:40.
+ *
+ * @author Gary.Hu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PagingBenchmark {
+
+    private static final int TOTAL_ROWS = 10000;
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"0", "9000"})
+    private int offset;
+
+    private BaseDao<Long> offsetDao;
+    private BaseDao<Long> keysetDao;
+    private String offsetToken;
+    private String keysetToken;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setup() throws SQLException {
+        DataSource dataSource = H2Fixture.dataSource("paging");
+        H2Fixture.truncate(dataSource);
+        H2Fixture.seed(dataSource, TOTAL_ROWS);
+        RunnerDao runnerDao = new RunnerDao(dataSource);
+        offsetDao = BaseDaoFactory.createBaseDao(runnerDao, H2Fixture.TABLE, H2Fixture.PRIMARY_KEY);
+        offsetDao.setKeysetPaging(false);
+        keysetDao = BaseDaoFactory.createBaseDao(runnerDao, H2Fixture.TABLE, H2Fixture.PRIMARY_KEY);
+        keysetDao.setKeysetPaging(true);
+        offsetToken = offset == 0 ? null : String.valueOf(offset);
+        if (offset > 0) {
+            // keyset分页的token是上一页最后一行的主键
+            List<Map<String, String>> previous = offsetDao.selectPage(String.valueOf(offset - 1), 1).getRows();
+            keysetToken = previous.get(0).get(H2Fixture.PRIMARY_KEY);
+        }
+    }
+
+    @Benchmark
+    public PageResult<Map<String, String>> offsetPaging() throws SQLException {
+        return offsetDao.selectPage(offsetToken, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public PageResult<Map<String, String>> keysetPaging() throws SQLException {
+        return keysetDao.selectPage(keysetToken, PAGE_SIZE);
+    }
+}
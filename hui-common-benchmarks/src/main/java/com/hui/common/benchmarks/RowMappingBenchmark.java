@@ -0,0 +1,123 @@
+package com.hui.common.benchmarks;
+
+import com.hui.common.dao.core.BaseDao;
+import com.hui.common.dao.core.BaseDaoFactory;
+import com.hui.common.dao.core.EntityMapper;
+import com.hui.common.dao.core.RowMap;
+import com.hui.common.dao.core.RunnerDao;
+import com.hui.common.dao.utils.TestBean;
+import com.hui.common.dao.utils.TestMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <code>RowMappingBenchmark</code>
+ * <desc>
+ * 描述： 结果集映射. 同一连接上直接映射结果集: RowMap(BaseDao.ofMap的实现)、逐行读元数据的LinkedHashMap(旧实现)、
+ * EntityMapper实体; 以及经过连接池的BaseDao.selectAll与BaseMapper.selectAll
+ * <desc/>
+ * Creation Time: 2019/12/27 20:50.
+ *
+ * @author Gary.Hu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMappingBenchmark {
+
+    private static final String SELECT_ALL = "select * from t_user";
+
+    @Param({"1000"})
+    private int rows;
+
+    private Connection connection;
+    private PreparedStatement statement;
+    private EntityMapper<TestBean> entityMapper;
+    private BaseDao<Long> baseDao;
+    private TestMapper mapper;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        DataSource dataSource = H2Fixture.dataSource("row_mapping_" + rows);
+        H2Fixture.truncate(dataSource);
+        H2Fixture.seed(dataSource, rows);
+        connection = dataSource.getConnection();
+        statement = connection.prepareStatement(SELECT_ALL);
+        entityMapper = EntityMapper.of(TestBean.class);
+        baseDao = BaseDaoFactory.createBaseDao(new RunnerDao(dataSource), H2Fixture.TABLE, H2Fixture.PRIMARY_KEY);
+        mapper = new TestMapper(baseDao);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        statement.close();
+        connection.close();
+    }
+
+    @Benchmark
+    public List<Map<String, String>> rowMap() throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            return RowMap.mapAll(rs);
+        }
+    }
+
+    @Benchmark
+    public List<Map<String, String>> linkedHashMapPerRow() throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            List<Map<String, String>> dataList = new LinkedList<>();
+            int columnCount = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                Map<String, String> data = new LinkedHashMap<>();
+                int index = 0;
+                while (index++ < columnCount) {
+                    String columnLabel = rs.getMetaData().getColumnName(index);
+                    data.put(columnLabel, rs.getString(columnLabel));
+                }
+                dataList.add(data);
+            }
+            return dataList;
+        }
+    }
+
+    @Benchmark
+    public List<TestBean> entityMapper() throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            return entityMapper.mapAll(rs);
+        }
+    }
+
+    @Benchmark
+    public List<Map<String, String>> baseDaoSelectAll() throws SQLException {
+        return baseDao.selectAll();
+    }
+
+    @Benchmark
+    public List<TestBean> baseMapperSelectAll() throws SQLException {
+        return mapper.selectAll();
+    }
+}
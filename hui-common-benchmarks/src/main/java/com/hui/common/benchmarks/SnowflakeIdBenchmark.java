@@ -0,0 +1,54 @@
+package com.hui.common.benchmarks;
+
+import com.hui.common.utils.web.SnowflakeIdHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <code>SnowflakeIdBenchmark</code>
+ * <desc>
+ * 描述： 多线程取号吞吐(每秒ID数), 默认使用全部核数; 用 -t 1/2/4/... 对比随线程数的扩展.
+ * 单节点每毫秒最多4096个ID, 吞吐上限约409万/秒, 达到上限后线程再多也只是等待下一毫秒
+ * <desc/>
+ * Creation Time: 2019/12/29 10:30.
+ *
+ * @author Gary.Hu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+@Fork(1)
+public class SnowflakeIdBenchmark {
+
+    private static final int BATCH = 64;
+
+    @Benchmark
+    public long nextId() {
+        return SnowflakeIdHelper.nextId();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long[] nextIds() {
+        return SnowflakeIdHelper.nextIds(BATCH);
+    }
+
+    @Benchmark
+    public long nextLocalId() {
+        return SnowflakeIdHelper.nextLocalId();
+    }
+}
@@ -0,0 +1,87 @@
+package com.hui.common.benchmarks;
+
+import com.hui.common.dao.core.SqlGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <code>SqlGeneratorBenchmark</code>
+ * <desc>
+ * 描述： SqlGenerator构建器与缓存模板的生成开销
+ * <desc/>
+ * Creation Time: 2019/12/27 20:30.
+ *
+ * @author Gary.Hu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SqlGeneratorBenchmark {
+
+    private static final String[] FIELDS = {"user_name", "email", "create_time"};
+    private static final Object[] VALUES = {"gary", "gary@hui.com", "2019-12-27 20:30:00"};
+
+    private final Map<String, String> updateMap = new LinkedHashMap<>();
+
+    public SqlGeneratorBenchmark() {
+        updateMap.put("user_id", "1");
+        for (int i = 0; i < FIELDS.length; i++) {
+            updateMap.put(FIELDS[i], String.valueOf(VALUES[i]));
+        }
+    }
+
+    @Benchmark
+    public String selectBuilder() {
+        return SqlGenerator.selectBuilder()
+                .select(H2Fixture.TABLE)
+                .wherePKAfter(H2Fixture.PRIMARY_KEY, 100)
+                .orderBy(H2Fixture.PRIMARY_KEY)
+                .limit(20)
+                .build()
+                .generator();
+    }
+
+    @Benchmark
+    public String insertBuilder() {
+        return SqlGenerator.insertBuilder()
+                .insert(H2Fixture.TABLE)
+                .fields(FIELDS)
+                .values(VALUES)
+                .build()
+                .generator();
+    }
+
+    @Benchmark
+    public String insertTemplate() {
+        return SqlGenerator.insertTemplate(H2Fixture.TABLE, FIELDS);
+    }
+
+    @Benchmark
+    public String updateBuilder() {
+        return SqlGenerator.updateBuilder()
+                .update(H2Fixture.TABLE)
+                .setFields(updateMap, H2Fixture.PRIMARY_KEY)
+                .wherePK(H2Fixture.PRIMARY_KEY, 1)
+                .build()
+                .generator();
+    }
+
+    @Benchmark
+    public String updateTemplate() {
+        return SqlGenerator.updateTemplate(H2Fixture.TABLE, H2Fixture.PRIMARY_KEY, FIELDS);
+    }
+}
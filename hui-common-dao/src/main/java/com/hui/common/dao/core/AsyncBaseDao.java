@@ -0,0 +1,75 @@
+package com.hui.common.dao.core;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <code>AsyncBaseDao</code>
+ * <desc>
+ * 描述： BaseDao的异步门面, 每个方法在 {@link DaoExecutor} 上执行并返回CompletableFuture,
+ * 便于一次请求并发查询多张表
+ * <desc/>
+ * Creation Time: 2019/12/21 21:10.
+ *
+ * @author Gary.Hu
+ */
+public class AsyncBaseDao<PK extends Serializable> {
+
+    private final BaseDao<PK> baseDao;
+    private final DaoExecutor executor;
+
+    public AsyncBaseDao(BaseDao<PK> baseDao, DaoExecutor executor) {
+        this.baseDao = baseDao;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<Map<String, String>> selectOne(Serializable id) {
+        return executor.submit(() -> baseDao.selectOne(id));
+    }
+
+    public CompletableFuture<List<Map<String, String>>> selectAll() {
+        return executor.submit(baseDao::selectAll);
+    }
+
+    public CompletableFuture<List<Map<String, String>>> selectPage(int pageNum, int pageSize) {
+        return executor.submit(() -> baseDao.selectPage(pageNum, pageSize));
+    }
+
+    public CompletableFuture<PageResult<Map<String, String>>> selectPage(String pageToken, int pageSize) {
+        return executor.submit(() -> baseDao.selectPage(pageToken, pageSize));
+    }
+
+    public CompletableFuture<List<Map<String, String>>> selectList() {
+        return executor.submit(baseDao::selectList);
+    }
+
+    public CompletableFuture<Integer> count() {
+        return executor.submit(baseDao::count);
+    }
+
+    public CompletableFuture<PK> insert(Map<String, String> dataMap) {
+        return executor.submit(() -> baseDao.insert(dataMap));
+    }
+
+    public CompletableFuture<List<Serializable>> batchInsert(List<Map<String, String>> maps) {
+        return executor.submit(() -> baseDao.batchInsert(maps));
+    }
+
+    public CompletableFuture<Integer> update(Map<String, String> entity) {
+        return executor.submit(() -> baseDao.update(entity));
+    }
+
+    public CompletableFuture<List<Serializable>> batchUpdate(List<Map<String, String>> entitys) {
+        return executor.submit(() -> baseDao.batchUpdate(entitys));
+    }
+
+    public CompletableFuture<Integer> batchDelete(List<Serializable> ids) {
+        return executor.submit(() -> baseDao.batchDelete(ids));
+    }
+
+    public CompletableFuture<Integer> delete(Serializable id) {
+        return executor.submit(() -> baseDao.delete(id));
+    }
+}
@@ -0,0 +1,51 @@
+package com.hui.common.dao.core;
+
+import org.apache.commons.dbutils.ResultSetHandler;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <code>AsyncRunnerDao</code>
+ * <desc>
+ * 描述： RunnerDao的异步门面, 用于自定义SQL的并发执行
+ * <desc/>
+ * Creation Time: 2019/12/21 21:20.
+ *
+ * @author Gary.Hu
+ */
+public class AsyncRunnerDao<T, PK extends Serializable> {
+
+    private final RunnerDao<T, PK> runnerDao;
+    private final DaoExecutor executor;
+
+    public AsyncRunnerDao(RunnerDao<T, PK> runnerDao, DaoExecutor executor) {
+        this.runnerDao = runnerDao;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<T> query(String sql, ResultSetHandler<List<T>> handler, Object... params) {
+        return executor.submit(() -> runnerDao.query(sql, handler, params));
+    }
+
+    public CompletableFuture<List<T>> queryList(String sql, ResultSetHandler<List<T>> handler, Object... params) {
+        return executor.submit(() -> runnerDao.queryList(sql, handler, params));
+    }
+
+    public CompletableFuture<Integer> update(String sql, Object... params) {
+        return executor.submit(() -> runnerDao.update(sql, params));
+    }
+
+    public CompletableFuture<PK> insertReturnKey(String sql, Object... params) {
+        return executor.submit(() -> runnerDao.insertReturnKey(sql, params));
+    }
+
+    public CompletableFuture<int[]> batchExecute(String sql, Object[][] params) {
+        return executor.submit(() -> runnerDao.batchExecute(sql, params));
+    }
+
+    public CompletableFuture<Integer> execute(String sql, Object... params) {
+        return executor.submit(() -> runnerDao.execute(sql, params));
+    }
+}
@@ -1,15 +1,30 @@
 package com.hui.common.dao.core;
 
+import com.hui.common.utils.CsvUtils;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
 import java.sql.ResultSet;
+import java.sql.SQLDataException;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * <code>MysqlDao</code>
@@ -29,18 +44,181 @@ public abstract class BaseDao<PK extends Serializable> implements IBaseDao<Map<S
         this.primaryKey = primaryKey;
     }
 
-    private RunnerDao<Map<String, String>, PK> runnerDao;
+    /**
+     * 批量操作默认每批行数
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    /**
+     * IN列表默认每批主键数
+     */
+    public static final int DEFAULT_IN_LIST_SIZE = 500;
+
+    protected RunnerDao<Map<String, String>, PK> runnerDao;
     public String tableName;
     public String primaryKey;
+    @Getter
+    @Setter
+    protected int batchSize = DEFAULT_BATCH_SIZE;
+    /**
+     * 流式查询每次从服务端拉取的行数
+     */
+    @Getter
+    @Setter
+    protected int fetchSize = DEFAULT_BATCH_SIZE;
+    /**
+     * 续传分页方式, true: 按主键keyset分页, false: limit offset分页
+     */
+    @Getter
+    @Setter
+    protected boolean keysetPaging = true;
+    /**
+     * selectByIds/deleteByIds 每条SQL的IN列表最多包含的主键数
+     */
+    @Getter
+    @Setter
+    protected int inListSize = DEFAULT_IN_LIST_SIZE;
+    /**
+     * 不为null时selectByIds的多个分批并行执行
+     */
+    @Getter
+    @Setter
+    protected DaoExecutor chunkExecutor;
+    /**
+     * 按主键的二级缓存, 为null时不启用; 本实例及基于本实例的BaseMapper的update/delete/batchUpdate/batchDelete会使对应主键失效
+     */
+    @Getter
+    @Setter
+    protected DaoCache<Map<String, String>> cache;
+
+    /**
+     * 在事务中执行callback, 期间当前线程对同一数据源的所有BaseDao操作共用一个连接
+     *
+     * @see RunnerDao#runInTransaction(DaoTransaction.Callback)
+     */
+    public <R> R runInTransaction(DaoTransaction.Callback<R> callback) throws SQLException {
+        return runnerDao.runInTransaction(callback);
+    }
+
+    /**
+     * 每累计写入commitEvery行提交一次, 用于长时间导入
+     */
+    public <R> R runInTransaction(int commitEvery, DaoTransaction.Callback<R> callback) throws SQLException {
+        return runnerDao.runInTransaction(commitEvery, callback);
+    }
 
     @Override
     public Map<String, String> selectOne(Serializable id) throws SQLException {
-        final String sql = SqlGenerator.selectBuilder()
-                .select(tableName)
-                .wherePK(primaryKey)
-                .build()
-                .generator();
-        return runnerDao.query(sql, rs -> ofMap(rs), id);
+        final String sql = SqlGenerator.selectTemplate(tableName, primaryKey);
+        DaoCache<Map<String, String>> rowCache = readCache();
+        if (null == rowCache) {
+            return runnerDao.query(sql, rs -> ofMap(rs), id);
+        }
+        Map<String, String> cached = rowCache.get(id);
+        if (null != cached) {
+            return copyRow(cached);
+        }
+        long stamp = rowCache.stamp();
+        Map<String, String> row = runnerDao.query(sql, rs -> ofMap(rs), id);
+        rowCache.put(id, copyRow(row), stamp);
+        return row;
+    }
+
+    /**
+     * 将按主键查询加入批量查询, batch执行后通过Result获取, 无数据时为null; 不经过二级缓存
+     */
+    public QueryBatch.Result<Map<String, String>> selectOne(QueryBatch batch, Serializable id) {
+        final String sql = SqlGenerator.selectTemplate(tableName, primaryKey);
+        return batch.add(sql, rs -> {
+            List<Map<String, String>> rows = ofMap(rs);
+            return rows.isEmpty() ? null : rows.get(0);
+        }, id);
+    }
+
+    /**
+     * 按主键批量查询, 结果按入参主键顺序排列(重复主键只保留一次, 不存在的主键跳过)
+     */
+    @Override
+    public List<Map<String, String>> selectByIds(List<? extends Serializable> ids) throws SQLException {
+        return new ArrayList<>(selectMapByIds(ids).values());
+    }
+
+    /**
+     * 按主键批量查询, 返回 入参主键 -> 行, 顺序与入参一致, 不存在的主键不出现在结果中;
+     * 开启缓存时只查询未命中的主键, IN列表按inListSize分批, 设置chunkExecutor时分批并行
+     */
+    public Map<Serializable, Map<String, String>> selectMapByIds(List<? extends Serializable> ids) throws SQLException {
+        Map<String, Serializable> requested = new LinkedHashMap<>();
+        for (Serializable id : ids) {
+            requested.putIfAbsent(String.valueOf(id), id);
+        }
+        DaoCache<Map<String, String>> rowCache = readCache();
+        Map<String, Map<String, String>> found = new HashMap<>(requested.size() * 4 / 3 + 1);
+        List<Serializable> missed = new ArrayList<>();
+        for (Map.Entry<String, Serializable> entry : requested.entrySet()) {
+            Map<String, String> cached = null == rowCache ? null : rowCache.get(entry.getValue());
+            if (null != cached) {
+                found.put(entry.getKey(), copyRow(cached));
+            } else {
+                missed.add(entry.getValue());
+            }
+        }
+        long stamp = null == rowCache ? 0 : rowCache.stamp();
+        for (Map<String, String> row : queryByIds(missed)) {
+            String key = row.get(primaryKey);
+            found.put(key, row);
+            if (null != rowCache && requested.containsKey(key)) {
+                rowCache.put(requested.get(key), copyRow(row), stamp);
+            }
+        }
+        Map<Serializable, Map<String, String>> result = new LinkedHashMap<>(found.size() * 4 / 3 + 1);
+        for (Map.Entry<String, Serializable> entry : requested.entrySet()) {
+            Map<String, String> row = found.get(entry.getKey());
+            if (null != row) {
+                result.put(entry.getValue(), row);
+            }
+        }
+        return result;
+    }
+
+    private List<Map<String, String>> queryByIds(List<Serializable> ids) throws SQLException {
+        List<List<Serializable>> chunks = chunks(ids);
+        List<Map<String, String>> rows = new ArrayList<>(ids.size());
+        // 事务连接绑定在当前线程, 事务中不并行
+        if (null == chunkExecutor || chunks.size() < 2 || null != runnerDao.currentTransaction()) {
+            for (List<Serializable> chunk : chunks) {
+                rows.addAll(queryChunk(chunk));
+            }
+            return rows;
+        }
+        List<CompletableFuture<List<Map<String, String>>>> futures = new ArrayList<>(chunks.size());
+        for (List<Serializable> chunk : chunks) {
+            futures.add(chunkExecutor.submit(() -> queryChunk(chunk)));
+        }
+        for (CompletableFuture<List<Map<String, String>>> future : futures) {
+            try {
+                rows.addAll(future.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof SQLException) {
+                    throw (SQLException) e.getCause();
+                }
+                throw new SQLException("分批查询失败", e.getCause());
+            }
+        }
+        return rows;
+    }
+
+    private List<Map<String, String>> queryChunk(List<Serializable> chunk) throws SQLException {
+        String sql = SqlGenerator.selectInTemplate(tableName, primaryKey, chunk.size());
+        return runnerDao.queryList(sql, rs -> ofMap(rs), chunk.toArray());
+    }
+
+    private List<List<Serializable>> chunks(List<? extends Serializable> ids) {
+        int size = Math.max(1, inListSize);
+        List<List<Serializable>> chunks = new ArrayList<>((ids.size() + size - 1) / size);
+        for (int from = 0; from < ids.size(); from += size) {
+            chunks.add(new ArrayList<>(ids.subList(from, Math.min(from + size, ids.size()))));
+        }
+        return chunks;
     }
 
     @Override
@@ -54,12 +232,39 @@ public abstract class BaseDao<PK extends Serializable> implements IBaseDao<Map<S
 
     @Override
     public List<Map<String, String>> selectPage(int pageNum, int pageSize) throws SQLException {
-        final String sql = SqlGenerator.selectBuilder()
-                .select(tableName)
-                .limit(pageNum, pageSize)
-                .build()
-                .generator();
-        return runnerDao.queryList(sql, rs -> ofMap(rs));
+        SqlGenerator.SelectBuilder builder = SqlGenerator.selectBuilder()
+                .select(tableName);
+        final SqlGenerator generator = limit(builder, pageNum, pageSize).build();
+        return runnerDao.queryList(generator.generator(), rs -> ofMap(rs), generator.getParams());
+    }
+
+    /**
+     * 续传分页, 默认按主键keyset分页: where pk>? order by pk limit ? , 深分页不再扫描丢弃offset行;
+     * keysetPaging为false时退化为 order by pk limit offset,size; 分页子句由方言 {@link #limit} 生成
+     *
+     * @param pageToken 上一页返回的nextToken, 首页传null
+     */
+    public PageResult<Map<String, String>> selectPage(String pageToken, int pageSize) throws SQLException {
+        SqlGenerator.SelectBuilder builder = SqlGenerator.selectBuilder().select(tableName);
+        int offset = 0;
+        if (keysetPaging) {
+            if (null != pageToken) {
+                builder.wherePKAfter(primaryKey, pageToken);
+            }
+            limit(builder.orderBy(primaryKey), null, pageSize);
+        } else {
+            offset = null == pageToken ? 0 : Integer.parseInt(pageToken);
+            limit(builder.orderBy(primaryKey), offset, pageSize);
+        }
+        SqlGenerator generator = builder.build();
+        List<Map<String, String>> rows = runnerDao.queryList(generator.generator(), rs -> ofMap(rs), generator.getParams());
+        String nextToken = null;
+        if (rows.size() == pageSize) {
+            nextToken = keysetPaging
+                    ? rows.get(rows.size() - 1).get(primaryKey)
+                    : String.valueOf(offset + pageSize);
+        }
+        return new PageResult<>(rows, nextToken);
     }
 
     @Override
@@ -73,6 +278,37 @@ public abstract class BaseDao<PK extends Serializable> implements IBaseDao<Map<S
         return runnerDao.queryList(sql, rs -> ofMap(rs));
     }
 
+    /**
+     * 流式读取全表, 逐行回调, 堆内存占用与表大小无关
+     *
+     * @return 处理的行数
+     */
+    public long selectAll(RowHandler<Map<String, String>> handler) throws SQLException {
+        return selectList("", handler);
+    }
+
+    /**
+     * 流式条件查询, 逐行回调
+     *
+     * @param where 条件表达式, 如 "status=?", 为空则查全表
+     * @return 处理的行数
+     */
+    public long selectList(String where, RowHandler<Map<String, String>> handler, Object... params) throws SQLException {
+        final String sql = SqlGenerator.selectBuilder()
+                .select(tableName)
+                .where(where)
+                .build()
+                .generator();
+        return runnerDao.queryStream(sql, streamFetchSize(), streamMapper(handler), params);
+    }
+
+    /**
+     * 流式查询实际使用的fetchSize
+     */
+    protected int streamFetchSize() throws SQLException {
+        return fetchSize;
+    }
+
     @Override
     public int count() throws SQLException {
         final String sql = SqlGenerator
@@ -87,67 +323,356 @@ public abstract class BaseDao<PK extends Serializable> implements IBaseDao<Map<S
 
     @Override
     public PK insert(Map<String, String> dataMap) throws SQLException {
-
-        String sql = SqlGenerator.insertBuilder().insert(tableName)
-                .fields(dataMap.keySet().stream().collect(Collectors.joining(",")))
-                .values(dataMap.values().stream().collect(Collectors.joining(",")))
-                .build()
-                .generator();
-        return runnerDao.insertReturnKey(sql);
+        String[] fields = new String[dataMap.size()];
+        Object[] params = new Object[dataMap.size()];
+        int index = 0;
+        for (Map.Entry<String, String> entry : dataMap.entrySet()) {
+            fields[index] = entry.getKey();
+            params[index++] = entry.getValue();
+        }
+        String sql = SqlGenerator.insertTemplate(tableName, fields);
+        return runnerDao.insertReturnKey(sql, params);
     }
 
     public abstract List<Serializable> batchInsert(List<Map<String, String>> maps) throws SQLException;
 
+    public UpsertResult upsert(Map<String, String> dataMap) throws SQLException {
+        return batchUpsert(Collections.singletonList(dataMap));
+    }
+
+    /**
+     * 按主键插入或更新, 由各方言实现
+     */
+    public abstract UpsertResult batchUpsert(List<Map<String, String>> maps) throws SQLException;
+
+    /**
+     * 批量导入, 字段取第一行的字段, 其余行缺少的字段导入为null
+     *
+     * @see #loadData(Iterator, String...)
+     */
+    public long loadData(List<Map<String, String>> maps) throws SQLException {
+        if (maps.isEmpty()) {
+            return 0;
+        }
+        return loadData(maps.iterator(), maps.get(0).keySet().toArray(new String[0]));
+    }
+
+    /**
+     * 批量导入CSV文件, fields依次对应文件各列
+     */
+    public long loadCsv(File file, String... fields) throws SQLException {
+        try (CSVParser parser = CsvUtils.parse(file, fields)) {
+            Iterator<CSVRecord> records = parser.iterator();
+            return loadData(new Iterator<Map<String, String>>() {
+                @Override
+                public boolean hasNext() {
+                    return records.hasNext();
+                }
+
+                @Override
+                public Map<String, String> next() {
+                    return records.next().toMap();
+                }
+            }, fields);
+        } catch (IOException e) {
+            throw new SQLException("读取CSV文件失败:" + file, e);
+        }
+    }
+
+    /**
+     * 批量导入, 行只被遍历一次. 数据源支持时走方言的流式导入 {@link #bulkLoad}, 不生成临时文件;
+     * 否则退化为每batchSize行一次的批量插入
+     *
+     * @return 导入的行数
+     */
+    public long loadData(Iterator<? extends Map<String, String>> rows, String... fields) throws SQLException {
+        try {
+            return supportsBulkLoad() ? bulkLoad(rows, fields) : batchLoad(rows, fields);
+        } finally {
+            evictAll();
+        }
+    }
+
+    /**
+     * 不支持流式导入时的退化实现, 每batchSize行一次批量插入
+     */
+    protected long batchLoad(Iterator<? extends Map<String, String>> rows, String[] fields) throws SQLException {
+        long count = 0;
+        List<Map<String, String>> chunk = new ArrayList<>(batchSize);
+        while (rows.hasNext()) {
+            Map<String, String> row = rows.next();
+            Map<String, String> dataMap = new LinkedHashMap<>(fields.length * 4 / 3 + 1);
+            for (String field : fields) {
+                dataMap.put(field, row.get(field));
+            }
+            chunk.add(dataMap);
+            if (chunk.size() == batchSize || !rows.hasNext()) {
+                batchInsert(chunk);
+                count += chunk.size();
+                chunk.clear();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 数据源是否支持流式批量导入, 默认不支持
+     */
+    protected boolean supportsBulkLoad() throws SQLException {
+        return false;
+    }
+
+    protected long bulkLoad(Iterator<? extends Map<String, String>> rows, String[] fields) throws SQLException {
+        throw new SQLFeatureNotSupportedException(getClass().getSimpleName() + "不支持流式导入");
+    }
+
     @Override
     public int update(Map<String, String> entity) throws SQLException {
-        String id = entity.get(primaryKey);
-        String sql = SqlGenerator.updateBuilder()
-                .update(tableName)
-                .setFields(entity,primaryKey)
-                .wherePK(primaryKey)
-                .build()
-                .generator();
-        return runnerDao.update(sql,id);
+        String[] fields = updateFields(entity.keySet());
+        String sql = SqlGenerator.updateTemplate(tableName, primaryKey, fields);
+        try {
+            return runnerDao.update(sql, updateParams(entity, fields));
+        } finally {
+            evict(entity.get(primaryKey));
+        }
     }
 
+    /**
+     * 批量更新, 字段集合相同的实体共用一条 update ... where pk=? 语句, 每batchSize行addBatch提交一次
+     *
+     * @return 每行更新条数(Integer), 与入参顺序一致
+     */
     @Override
     public List<Serializable> batchUpdate(List<Map<String, String>> entitys) throws SQLException {
-        return null;
+        Integer[] counts = new Integer[entitys.size()];
+        try {
+            batchUpdate(entitys, counts);
+        } finally {
+            for (Map<String, String> entity : entitys) {
+                evict(entity.get(primaryKey));
+            }
+        }
+        return Arrays.asList(counts);
+    }
+
+    private void batchUpdate(List<Map<String, String>> entitys, Integer[] counts) throws SQLException {
+        for (Map.Entry<List<String>, List<Integer>> group : groupByFields(entitys).entrySet()) {
+            String[] fields = updateFields(group.getKey());
+            String sql = SqlGenerator.updateTemplate(tableName, primaryKey, fields);
+            List<Integer> indexes = group.getValue();
+            for (int from = 0; from < indexes.size(); from += batchSize) {
+                List<Integer> chunk = indexes.subList(from, Math.min(from + batchSize, indexes.size()));
+                Object[][] params = new Object[chunk.size()][];
+                for (int i = 0; i < chunk.size(); i++) {
+                    params[i] = updateParams(entitys.get(chunk.get(i)), fields);
+                }
+                int[] results = runnerDao.batchExecute(sql, params);
+                for (int i = 0; i < chunk.size(); i++) {
+                    counts[chunk.get(i)] = results[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * 除主键外的更新字段; 主键按忽略大小写匹配(Oracle查询结果的列名为大写), 其余字段保留原列名
+     */
+    private String[] updateFields(Collection<String> keys) throws SQLDataException {
+        if (!keys.contains(primaryKey)) {
+            throw new SQLDataException("更新数据缺少主键:" + primaryKey);
+        }
+        List<String> fields = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            if (!key.equalsIgnoreCase(primaryKey)) {
+                fields.add(key);
+            }
+        }
+        return fields.toArray(new String[0]);
+    }
+
+    /**
+     * set字段值 + 主键值, 顺序与 update ... set f1=?,f2=? where pk=? 一致
+     */
+    private Object[] updateParams(Map<String, String> entity, String[] fields) {
+        Object[] params = new Object[fields.length + 1];
+        for (int i = 0; i < fields.length; i++) {
+            params[i] = entity.get(fields[i]);
+        }
+        params[fields.length] = entity.get(primaryKey);
+        return params;
     }
 
     @Override
     public int batchDelete(List<Serializable> ids) throws SQLException {
-        String sql = SqlGenerator.deleteBuilder()
-                .delete(tableName)
-                .in(ids.toArray(new String[ids.size()]))
-                .build()
-                .generator();
-        return runnerDao.execute(sql);
+        return deleteByIds(ids);
+    }
+
+    /**
+     * 按主键批量删除, IN列表按inListSize分批顺序执行(不并行, 避免分批之间互相争抢锁)
+     *
+     * @return 删除的总行数
+     */
+    @Override
+    public int deleteByIds(List<? extends Serializable> ids) throws SQLException {
+        int count = 0;
+        try {
+            for (List<Serializable> chunk : chunks(ids)) {
+                String sql = SqlGenerator.deleteInTemplate(tableName, primaryKey, chunk.size());
+                count += runnerDao.execute(sql, chunk.toArray());
+            }
+        } finally {
+            ids.forEach(this::evict);
+        }
+        return count;
     }
 
     @Override
     public int delete(Serializable id) throws SQLException {
-        String sql = SqlGenerator.deleteBuilder()
-                .delete(tableName)
-                .wherePK(primaryKey)
-                .build()
-                .generator();
-        return runnerDao.execute(sql);
+        String sql = SqlGenerator.deleteTemplate(tableName, primaryKey);
+        try {
+            return runnerDao.execute(sql, id);
+        } finally {
+            evict(id);
+        }
+    }
+
+    /**
+     * 事务中的写入在提交或回滚后再失效一次, 避免其它线程在此期间回填旧数据
+     */
+    void evict(Serializable id) {
+        if (null != cache && null != id) {
+            cache.invalidate(id);
+            DaoTransaction transaction = runnerDao.currentTransaction();
+            if (null != transaction) {
+                DaoCache<Map<String, String>> current = cache;
+                transaction.afterCompletion(() -> current.invalidate(id));
+            }
+        }
+    }
+
+    void evictAll() {
+        if (null != cache) {
+            cache.invalidateAll();
+            DaoTransaction transaction = runnerDao.currentTransaction();
+            if (null != transaction) {
+                transaction.afterCompletion(cache::invalidateAll);
+            }
+        }
+    }
+
+    /**
+     * 事务中不读写缓存: 缓存中没有本事务未提交的修改, 查到的未提交数据也不能回填
+     */
+    private DaoCache<Map<String, String>> readCache() {
+        return null == cache || null != runnerDao.currentTransaction() ? null : cache;
+    }
+
+    /**
+     * 缓存中的行与返回给调用方的行互不共享, 避免调用方修改污染缓存
+     */
+    private Map<String, String> copyRow(Map<String, String> row) {
+        return row instanceof RowMap ? ((RowMap) row).copy() : new LinkedHashMap<>(row);
+    }
+
+    /**
+     * 分页子句, offset为null时只限制行数; 默认MySQL语法 limit ? / limit ?,?
+     */
+    protected SqlGenerator.SelectBuilder limit(SqlGenerator.SelectBuilder builder, Integer offset, int size) {
+        return null == offset ? builder.limit(size) : builder.limit(offset, size);
+    }
+
+    /**
+     * 未携带主键的行可能因唯一键冲突更新了任意一行, 此时清空整个缓存
+     */
+    protected void evictUpserted(List<Map<String, String>> maps) {
+        if (null == cache) {
+            return;
+        }
+        for (Map<String, String> map : maps) {
+            String id = map.get(primaryKey);
+            if (null == id) {
+                evictAll();
+                return;
+            }
+            evict(id);
+        }
+    }
+
+    /**
+     * addBatch的参数, 每行一组
+     */
+    protected Object[][] batchParams(List<Map<String, String>> maps, List<Integer> chunk) {
+        Object[][] params = new Object[chunk.size()][];
+        for (int i = 0; i < chunk.size(); i++) {
+            params[i] = maps.get(chunk.get(i)).values().toArray();
+        }
+        return params;
+    }
+
+    /**
+     * 多行VALUES语句的参数, 按行依次展开
+     */
+    protected Object[] rowParams(String[] fields, List<Map<String, String>> maps, List<Integer> chunk) {
+        Object[] params = new Object[chunk.size() * fields.length];
+        int index = 0;
+        for (Integer row : chunk) {
+            for (String value : maps.get(row).values()) {
+                params[index++] = value;
+            }
+        }
+        return params;
+    }
+
+    /**
+     * 按字段集合分组, 返回 字段列表 -> 原始下标, 分组及组内顺序与输入一致
+     */
+    protected Map<List<String>, List<Integer>> groupByFields(List<Map<String, String>> maps) {
+        Map<List<String>, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < maps.size(); i++) {
+            List<String> fields = Arrays.asList(maps.get(i).keySet().toArray(new String[0]));
+            groups.computeIfAbsent(fields, key -> new ArrayList<>()).add(i);
+        }
+        return groups;
+    }
+
+    /**
+     * 一批插入的主键按入参顺序写入keys. 驱动返回的主键少于行数时(如显式指定了主键值, 驱动未返回生成键),
+     * 字段中含主键的分组取各行自身的主键值, 否则无法对应到行, 抛出SQLDataException
+     */
+    protected void fillKeys(Serializable[] keys, List<String> fields, List<Map<String, String>> maps,
+                            List<Integer> chunk, List<PK> chunkKeys) throws SQLException {
+        if (chunkKeys.size() >= chunk.size()) {
+            for (int i = 0; i < chunk.size(); i++) {
+                keys[chunk.get(i)] = chunkKeys.get(i);
+            }
+            return;
+        }
+        if (!fields.contains(primaryKey)) {
+            throw new SQLDataException("返回的主键数" + chunkKeys.size() + "少于插入行数" + chunk.size());
+        }
+        for (Integer index : chunk) {
+            keys[index] = maps.get(index).get(primaryKey);
+        }
+    }
+
+    /**
+     * 列名只在首行读取一次, 之后每行按下标取值
+     */
+    private RowHandler<ResultSet> streamMapper(RowHandler<Map<String, String>> handler) {
+        return new RowHandler<ResultSet>() {
+            private RowMap.Columns columns;
+
+            @Override
+            public void handle(ResultSet rs) throws SQLException {
+                if (null == columns) {
+                    columns = RowMap.Columns.of(rs.getMetaData());
+                }
+                handler.handle(columns.read(rs));
+            }
+        };
     }
 
     private List<Map<String, String>> ofMap(ResultSet rs) throws SQLException {
-        List<Map<String, String>> dataList = new LinkedList<>();
-        int columnCount = rs.getMetaData().getColumnCount();
-        while (rs.next()) {
-            Map<String, String> data = new LinkedHashMap<>();
-            int index = 0;
-            while (index++ < columnCount) {
-                String columnLabel = rs.getMetaData().getColumnName(index);
-                String val = rs.getString(columnLabel);
-                data.put(columnLabel, val);
-            }
-            dataList.add(data);
-        }
-        return dataList;
+        return RowMap.mapAll(rs);
     }
 }
@@ -4,8 +4,11 @@ import com.alibaba.druid.pool.DruidDataSource;
 
 import javax.sql.DataSource;
 import java.sql.SQLException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * <code>DaoFactory</code>
@@ -18,39 +21,125 @@ import java.util.Map;
  */
 public class BaseDaoFactory {
 
-    private Map<String, DataSource> multiDataSourceMap = new HashMap<>();
+    /**
+     * 具名数据源, 同名(或同url+用户名)的RunnerDao共用一个连接池
+     */
+    private static final Map<String, DruidDataSource> multiDataSourceMap = new ConcurrentHashMap<>();
 
     public static final String MYSQL_DRIVER = " com.mysql.jdbc.Driver";
     public static final String MYSQL_DRIVER_LATEST = " com.mysql.cj.jdbc.Driver";
 
     public static DataSource dataSourceInstance(String driverName, String url, String username, String password) throws SQLException {
         // jdbc:mysql://127.0.0.1/hui_cloud_uc?characterEncoding=utf-8&useSSL=false&serverTimezone=Asia/Shanghai&&allowPublicKeyRetrieval=true
+        return dataSourceInstance(new DataSourceConfig(driverName, url, username, password));
+    }
+
+    public static DataSource dataSourceInstance(DataSourceConfig config) {
         DruidDataSource dataSource = new DruidDataSource();
-        dataSource.setDriverClassName(driverName);
-        dataSource.setUrl(url);
-        dataSource.setMaxActive(1);
-        dataSource.setUsername(username);
-        dataSource.setMaxActive(10);
+        invokeByProperties(dataSource, config);
         dataSource.setKeepAlive(true);
-        dataSource.setPassword(password);
         dataSource.setFailFast(true);
         dataSource.setConnectionErrorRetryAttempts(3);
         dataSource.setNotFullTimeoutRetryCount(3);
         return dataSource;
     }
 
+    /**
+     * 获取具名数据源, 不存在时按配置创建, 之后同名调用复用同一连接池
+     */
+    public static DataSource dataSourceInstance(String name, DataSourceConfig config) {
+        return multiDataSourceMap.computeIfAbsent(name, key -> (DruidDataSource) dataSourceInstance(config));
+    }
+
+    /**
+     * 按数据源的JDBC url选择方言
+     */
     public static BaseDao createBaseDao(RunnerDao runnerDao,String tableName,String primaryKey) throws SQLException {
-        BaseDaoStrategy strategy = BaseDaoStrategy.valueOf("MYSQL");
-        BaseDao baseDao = strategy.createBaseDao(runnerDao, tableName, primaryKey);
+        BaseDaoStrategy strategy = BaseDaoStrategy.fromUrl(runnerDao.getUrl());
+        return createBaseDao(runnerDao, tableName, primaryKey, strategy);
+    }
+
+    public static BaseDao createBaseDao(RunnerDao runnerDao, String tableName, String primaryKey, BaseDaoStrategy strategy) {
+        return strategy.createBaseDao(runnerDao, tableName, primaryKey);
+    }
+
+    /**
+     * 带主键二级缓存的BaseDao, 适用于读多写少的表, 如: new LruDaoCache<>(10000, 10, TimeUnit.MINUTES)
+     */
+    public static BaseDao createBaseDao(RunnerDao runnerDao, String tableName, String primaryKey, DaoCache<Map<String, String>> cache) throws SQLException {
+        BaseDao baseDao = createBaseDao(runnerDao, tableName, primaryKey);
+        baseDao.setCache(cache);
         return baseDao;
     }
 
+    /**
+     * 同url+用户名复用同一连接池
+     */
     public static RunnerDao createRunnerDao(String driverName, String url, String username, String password) throws SQLException {
-        DataSource dataSource = dataSourceInstance(driverName, url, username, password);
+        DataSource dataSource = dataSourceInstance(username + "@" + url, new DataSourceConfig(driverName, url, username, password));
         return new RunnerDao(dataSource);
     }
-    private void invokeByProperties(DataSource dataSource) {
 
+    /**
+     * 按 common.cfg 中 {name}.xxx 配置创建(或复用)具名连接池
+     */
+    public static RunnerDao createRunnerDao(String name) {
+        return new RunnerDao(dataSourceInstance(name, DataSourceConfig.fromConfig(name)));
+    }
+
+    public static RunnerDao createRunnerDao(String name, DataSourceConfig config) {
+        return new RunnerDao(dataSourceInstance(name, config));
+    }
+
+    /**
+     * 读写分离RunnerDao, 主库与从库均为 common.cfg 中配置的具名连接池
+     */
+    public static RunnerDao createRoutingRunnerDao(String primaryName, RoutingRunnerDao.ReadStrategy readStrategy, String... replicaNames) {
+        DataSource primary = dataSourceInstance(primaryName, DataSourceConfig.fromConfig(primaryName));
+        List<DataSource> replicas = new ArrayList<>(replicaNames.length);
+        for (String replicaName : replicaNames) {
+            replicas.add(dataSourceInstance(replicaName, DataSourceConfig.fromConfig(replicaName)));
+        }
+        return new RoutingRunnerDao(primary, replicas, readStrategy);
+    }
+
+    /**
+     * 各具名连接池的运行状态(活跃/空闲连接数、等待线程数、PSCache命中等)
+     */
+    public static Map<String, Map<String, Object>> poolStats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        multiDataSourceMap.forEach((name, dataSource) -> stats.put(name, dataSource.getStatData()));
+        return stats;
+    }
+
+    public static void closeDataSource(String name) {
+        DruidDataSource dataSource = multiDataSourceMap.remove(name);
+        if (null != dataSource) {
+            dataSource.close();
+        }
+    }
+
+    private static void invokeByProperties(DruidDataSource dataSource, DataSourceConfig config) {
+        if (null != config.getDriverName()) {
+            dataSource.setDriverClassName(config.getDriverName().trim());
+        }
+        dataSource.setUrl(config.getUrl());
+        dataSource.setUsername(config.getUsername());
+        dataSource.setPassword(config.getPassword());
+        dataSource.setMaxActive(config.getMaxActive());
+        dataSource.setMinIdle(Math.min(config.getMinIdle(), config.getMaxActive()));
+        dataSource.setInitialSize(Math.min(config.getInitialSize(), config.getMaxActive()));
+        dataSource.setMaxWait(config.getMaxWait());
+        String validationQuery = null == config.getValidationQuery()
+                ? BaseDaoStrategy.fromUrl(config.getUrl()).validationQuery()
+                : config.getValidationQuery();
+        dataSource.setValidationQuery(validationQuery);
+        dataSource.setTestWhileIdle(config.isTestWhileIdle());
+        dataSource.setTestOnBorrow(config.isTestOnBorrow());
+        dataSource.setPoolPreparedStatements(config.getPreparedStatementCacheSize() > 0);
+        if (config.getPreparedStatementCacheSize() > 0) {
+            dataSource.setMaxPoolPreparedStatementPerConnectionSize(config.getPreparedStatementCacheSize());
+        }
     }
 
 }
@@ -1,9 +1,11 @@
 package com.hui.common.dao.core;
 
+import java.util.Locale;
+
 /**
  * <code>BaseDaoStrategy</code>
  * <desc>
- * 描述：
+ * 描述： 按数据库方言创建BaseDao, 可通过 {@link #fromUrl(String)} 由JDBC url选择
  * <desc/>
  * Creation Time: 2019/12/10 1:17.
  *
@@ -23,15 +25,50 @@ public enum BaseDaoStrategy {
     ORACLE {
         @Override
         public BaseDao createBaseDao(RunnerDao runnerDao, String tableName, String primaryKey) {
-            return null;
+            return new OracleDao(runnerDao, tableName, primaryKey);
+        }
+
+        @Override
+        public String validationQuery() {
+            return "select 1 from dual";
         }
     },
     POSTGRESQL {
         @Override
         public BaseDao createBaseDao(RunnerDao runnerDao, String tableName, String primaryKey) {
-            return null;
+            return new PostgreSqlDao(runnerDao, tableName, primaryKey);
         }
     };
 
     public abstract BaseDao createBaseDao(RunnerDao runnerDao, String tableName, String primaryKey);
+
+    /**
+     * 连接池检测连接有效性的SQL
+     */
+    public String validationQuery() {
+        return "select 1";
+    }
+
+    /**
+     * jdbc:mysql/mariadb -> MYSQL, jdbc:oracle -> ORACLE, jdbc:postgresql -> POSTGRESQL;
+     * H2按MODE参数选择, 其余默认MYSQL
+     */
+    public static BaseDaoStrategy fromUrl(String url) {
+        String lower = null == url ? "" : url.toLowerCase(Locale.ROOT);
+        if (lower.startsWith("jdbc:oracle:")) {
+            return ORACLE;
+        }
+        if (lower.startsWith("jdbc:postgresql:")) {
+            return POSTGRESQL;
+        }
+        if (lower.startsWith("jdbc:h2:")) {
+            if (lower.contains(";mode=oracle")) {
+                return ORACLE;
+            }
+            if (lower.contains(";mode=postgresql")) {
+                return POSTGRESQL;
+            }
+        }
+        return MYSQL;
+    }
 }
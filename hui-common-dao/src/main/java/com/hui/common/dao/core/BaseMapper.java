@@ -1,17 +1,17 @@
 package com.hui.common.dao.core;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-import com.hui.common.dao.utils.GsonUtils;
-
 import java.io.Serializable;
+import java.sql.SQLDataException;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * <code>BaseMapper</code>
  * <desc>
- * 描述： 只做一个操作,map转json转entity
+ * 描述： 单表实体映射, 通过缓存的 {@link EntityMapper} 在ResultSet与实体之间直接转换;
+ * 写操作与BaseDao共用二级缓存的失效逻辑
  * <desc/>
  * Creation Time: 2019/12/9 20:59.
  *
@@ -21,42 +21,42 @@ public class BaseMapper<Entity, PK extends Serializable> implements IBaseMapper<
 
     private BaseDao baseDao;
     private Class<Entity> clazz;
-
-    private Gson gson = GsonUtils.INSTANCE.getGson();
+    private EntityMapper<Entity> entityMapper;
+    private RunnerDao<Entity, PK> runnerDao;
+    private EntityMapper.FieldBinding pkBinding;
+
+    @SuppressWarnings("unchecked")
+    public BaseMapper(BaseDao baseDao, Class<Entity> clazz) {
+        this.baseDao = baseDao;
+        this.clazz = clazz;
+        this.entityMapper = EntityMapper.of(clazz);
+        this.runnerDao = baseDao.runnerDao;
+        this.pkBinding = entityMapper.binding(baseDao.primaryKey);
+    }
 
     @Override
     public Entity selectOne(Serializable id) throws SQLException {
-        Object object = baseDao.selectOne(id);
-        String json = gson.toJson(object, String.class);
-        Entity entity = gson.fromJson(json, clazz);
-        return entity;
+        String sql = SqlGenerator.selectTemplate(baseDao.tableName, baseDao.primaryKey);
+        return runnerDao.query(sql, entityMapper::mapAll, id);
     }
 
     @Override
     public List<Entity> selectAll() throws SQLException {
-        List list = baseDao.selectAll();
-        String json = gson.toJson(list, String.class);
-        List<Entity> entityList = gson.fromJson(json, new TypeToken<List<Entity>>() {
-        }.getType());
-        return entityList;
+        String sql = SqlGenerator.selectBuilder()
+                .select(baseDao.tableName)
+                .build()
+                .generator();
+        return runnerDao.queryList(sql, entityMapper::mapAll);
     }
 
     @Override
     public List<Entity> selectPage() throws SQLException {
-        List list = baseDao.selectAll();
-        String json = gson.toJson(list, String.class);
-        List<Entity> entityList = gson.fromJson(json, new TypeToken<List<Entity>>() {
-        }.getType());
-        return entityList;
+        return selectAll();
     }
 
     @Override
     public List<Entity> selectList() throws SQLException {
-        List list = baseDao.selectList();
-        String json = gson.toJson(list, String.class);
-        List<Entity> entityList = gson.fromJson(json, new TypeToken<List<Entity>>() {
-        }.getType());
-        return entityList;
+        return selectAll();
     }
 
     @Override
@@ -64,24 +64,104 @@ public class BaseMapper<Entity, PK extends Serializable> implements IBaseMapper<
         return baseDao.count();
     }
 
+    /**
+     * 插入全部映射字段, 主键为空时由数据库生成并回写到实体
+     */
     @Override
     public Serializable insert(Entity entity) throws SQLException {
-        return null;
+        EntityMapper.FieldBinding[] bindings = insertBindings(entity);
+        String sql = SqlGenerator.insertTemplate(baseDao.tableName, columns(bindings));
+        try {
+            PK key = runnerDao.insertReturnKey(sql, values(entity, bindings));
+            return fillKey(entity, key);
+        } finally {
+            evict(entity);
+        }
     }
 
+    /**
+     * 按是否携带主键分组, 每batchSize行批量提交, 生成的主键按入参顺序返回并回写到实体
+     */
     @Override
     public List<Serializable> batchInsert(List<Entity> entities) throws SQLException {
-        return null;
+        try {
+            return doBatchInsert(entities);
+        } finally {
+            for (Entity entity : entities) {
+                evict(entity);
+            }
+        }
+    }
+
+    private List<Serializable> doBatchInsert(List<Entity> entities) throws SQLException {
+        Serializable[] keys = new Serializable[entities.size()];
+        List<Integer> withKey = new ArrayList<>();
+        List<Integer> withoutKey = new ArrayList<>();
+        for (int i = 0; i < entities.size(); i++) {
+            (hasKey(entities.get(i)) ? withKey : withoutKey).add(i);
+        }
+        for (List<Integer> indexes : Arrays.asList(withKey, withoutKey)) {
+            if (indexes.isEmpty()) {
+                continue;
+            }
+            EntityMapper.FieldBinding[] bindings = insertBindings(entities.get(indexes.get(0)));
+            String sql = SqlGenerator.insertTemplate(baseDao.tableName, columns(bindings));
+            for (int from = 0; from < indexes.size(); from += baseDao.batchSize) {
+                List<Integer> chunk = indexes.subList(from, Math.min(from + baseDao.batchSize, indexes.size()));
+                Object[][] params = new Object[chunk.size()][];
+                for (int i = 0; i < chunk.size(); i++) {
+                    params[i] = values(entities.get(chunk.get(i)), bindings);
+                }
+                List<PK> chunkKeys = runnerDao.batchInsertReturnKeys(sql, params, baseDao.primaryKey);
+                // 携带主键的实体保留自身主键; 未携带的须由驱动逐行返回, 否则无法回写
+                if (indexes == withoutKey && null != pkBinding && chunkKeys.size() < chunk.size()) {
+                    throw new SQLDataException("返回的主键数" + chunkKeys.size() + "少于插入行数" + chunk.size());
+                }
+                for (int i = 0; i < chunk.size(); i++) {
+                    Entity entity = entities.get(chunk.get(i));
+                    keys[chunk.get(i)] = fillKey(entity, i < chunkKeys.size() ? chunkKeys.get(i) : null);
+                }
+            }
+        }
+        return Arrays.asList(keys);
     }
 
     @Override
     public int update(Entity entity) throws SQLException {
-        return 0;
+        EntityMapper.FieldBinding[] bindings = updateBindings();
+        String sql = SqlGenerator.updateTemplate(baseDao.tableName, baseDao.primaryKey, columns(bindings));
+        try {
+            return runnerDao.update(sql, updateValues(entity, bindings));
+        } finally {
+            evict(entity);
+        }
     }
 
+    /**
+     * @return 每行更新条数(Integer), 与入参顺序一致
+     */
     @Override
     public List<Serializable> batchUpdate(List<Entity> entities) throws SQLException {
-        return baseDao.batchUpdate(entities);
+        EntityMapper.FieldBinding[] bindings = updateBindings();
+        String sql = SqlGenerator.updateTemplate(baseDao.tableName, baseDao.primaryKey, columns(bindings));
+        List<Serializable> counts = new ArrayList<>(entities.size());
+        try {
+            for (int from = 0; from < entities.size(); from += baseDao.batchSize) {
+                List<Entity> chunk = entities.subList(from, Math.min(from + baseDao.batchSize, entities.size()));
+                Object[][] params = new Object[chunk.size()][];
+                for (int i = 0; i < chunk.size(); i++) {
+                    params[i] = updateValues(chunk.get(i), bindings);
+                }
+                for (int count : runnerDao.batchExecute(sql, params)) {
+                    counts.add(count);
+                }
+            }
+        } finally {
+            for (Entity entity : entities) {
+                evict(entity);
+            }
+        }
+        return counts;
     }
 
     @Override
@@ -93,4 +173,77 @@ public class BaseMapper<Entity, PK extends Serializable> implements IBaseMapper<
     public int delete(Serializable id) throws SQLException {
         return baseDao.delete(id);
     }
+
+    /**
+     * 使实体主键对应的缓存失效; 无主键字段的实体只能插入, 插入的新行不在缓存中
+     */
+    private void evict(Entity entity) throws SQLException {
+        Object id = null == pkBinding ? null : pkBinding.get(entity);
+        if (null != id) {
+            baseDao.evict((Serializable) id);
+        }
+    }
+
+    private boolean hasKey(Entity entity) throws SQLException {
+        return null != pkBinding && null != pkBinding.get(entity);
+    }
+
+    private EntityMapper.FieldBinding[] insertBindings(Entity entity) throws SQLException {
+        EntityMapper.FieldBinding[] bindings = entityMapper.getBindings();
+        if (hasKey(entity) || null == pkBinding) {
+            return bindings;
+        }
+        List<EntityMapper.FieldBinding> insertBindings = new ArrayList<>(Arrays.asList(bindings));
+        insertBindings.remove(pkBinding);
+        return insertBindings.toArray(new EntityMapper.FieldBinding[0]);
+    }
+
+    private EntityMapper.FieldBinding[] updateBindings() throws SQLDataException {
+        if (null == pkBinding) {
+            throw new SQLDataException(clazz.getName() + " 缺少主键字段:" + baseDao.primaryKey);
+        }
+        List<EntityMapper.FieldBinding> updateBindings = new ArrayList<>(Arrays.asList(entityMapper.getBindings()));
+        updateBindings.remove(pkBinding);
+        return updateBindings.toArray(new EntityMapper.FieldBinding[0]);
+    }
+
+    private String[] columns(EntityMapper.FieldBinding[] bindings) {
+        String[] columns = new String[bindings.length];
+        for (int i = 0; i < bindings.length; i++) {
+            columns[i] = bindings[i].getColumn();
+        }
+        return columns;
+    }
+
+    private Object[] values(Entity entity, EntityMapper.FieldBinding[] bindings) throws SQLException {
+        Object[] values = new Object[bindings.length];
+        for (int i = 0; i < bindings.length; i++) {
+            values[i] = bindings[i].get(entity);
+        }
+        return values;
+    }
+
+    private Object[] updateValues(Entity entity, EntityMapper.FieldBinding[] bindings) throws SQLException {
+        Object[] values = new Object[bindings.length + 1];
+        for (int i = 0; i < bindings.length; i++) {
+            values[i] = bindings[i].get(entity);
+        }
+        values[bindings.length] = pkBinding.get(entity);
+        return values;
+    }
+
+    /**
+     * 主键为空时回写生成的主键, 返回实体最终的主键值
+     */
+    private Serializable fillKey(Entity entity, Serializable key) throws SQLException {
+        if (null == pkBinding) {
+            return key;
+        }
+        Object current = pkBinding.get(entity);
+        if (null == current && null != key) {
+            current = pkBinding.convert(key);
+            pkBinding.set(entity, current);
+        }
+        return (Serializable) current;
+    }
 }
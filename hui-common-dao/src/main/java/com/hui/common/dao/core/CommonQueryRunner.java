@@ -1,47 +1,522 @@
 package com.hui.common.dao.core;
 
+import com.alibaba.druid.pool.DruidDataSource;
+import com.mysql.cj.jdbc.JdbcConnection;
+import com.mysql.cj.jdbc.JdbcStatement;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.ResultSetHandler;
 
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * <code>CommonQueryRunner</code>
  * <desc>
- * 描述： 对接apache queryRunner 做底层接口封装
+ * 描述： 对接apache queryRunner 做底层接口封装; 每条语句按模板统计指标(见 {@link SqlMetrics}), 超过阈值记录慢SQL
  * <desc/>
  * Creation Time: 2019/12/9 0:59.
  *
  * @author Gary.Hu
  */
+@Slf4j
 public class CommonQueryRunner<PK extends Serializable> extends QueryRunner {
 
+    /**
+     * 指标接收器, 为null时不统计
+     */
+    @Getter
+    @Setter
+    private volatile SqlMetrics metrics;
+    /**
+     * 慢SQL阈值(毫秒), 耗时不低于该值的语句以warn级别记录, 小于0关闭
+     */
+    @Getter
+    @Setter
+    private volatile long slowQueryMillis = DEFAULT_SLOW_QUERY_MILLIS;
+    /**
+     * 慢SQL日志是否隐藏参数值, 只输出参数类型
+     */
+    @Getter
+    @Setter
+    private volatile boolean redactParams = true;
+
+    public static final long DEFAULT_SLOW_QUERY_MILLIS = 1000;
+
     public CommonQueryRunner(DataSource dataSource) {
         super(dataSource);
     }
 
+    @Override
+    public <T> T query(String sql, ResultSetHandler<T> rsh, Object... params) throws SQLException {
+        return timed(sql, params, () -> super.query(sql, rsh, params));
+    }
+
+    @Override
+    public int update(String sql) throws SQLException {
+        return written(timed(sql, null, () -> super.update(sql)));
+    }
+
+    @Override
+    public int update(String sql, Object... params) throws SQLException {
+        return written(timed(sql, params, () -> super.update(sql, params)));
+    }
+
+    @Override
+    public int[] batch(String sql, Object[][] params) throws SQLException {
+        return written(timed(sql, params, () -> super.batch(sql, params)));
+    }
+
+    @Override
+    public int execute(String sql, Object... params) throws SQLException {
+        return written(timed(sql, params, () -> super.execute(sql, params)));
+    }
+
+    @Override
+    public <T> List<T> execute(String sql, ResultSetHandler<T> rsh, Object... params) throws SQLException {
+        return written(timed(sql, params, () -> super.execute(sql, rsh, params)));
+    }
+
+    /**
+     * 当前线程处于该数据源的事务({@link DaoTransaction})中时使用事务连接
+     */
+    @Override
+    protected Connection prepareConnection() throws SQLException {
+        DaoTransaction transaction = DaoTransaction.current(this.getDataSource());
+        return null == transaction ? super.prepareConnection() : transaction.getConnection();
+    }
+
+    /**
+     * 事务连接由 {@link DaoTransaction} 在结束时归还, 语句执行完不关闭
+     */
+    @Override
+    protected void close(Connection conn) throws SQLException {
+        DaoTransaction transaction = DaoTransaction.current(this.getDataSource());
+        if (null == transaction || transaction.getConnection() != conn) {
+            super.close(conn);
+        }
+    }
+
+    /**
+     * 事务中累计写入行数, 达到commitEvery时提交
+     */
+    private <R> R written(R result) throws SQLException {
+        DaoTransaction transaction = DaoTransaction.current(this.getDataSource());
+        if (null != transaction) {
+            transaction.written(rows(result));
+        }
+        return result;
+    }
+
+    /**
+     * 统计耗时、行数及错误, 交给metrics并记录慢SQL; 两者都关闭时直接执行
+     */
+    private <R> R timed(String sql, Object params, DaoExecutor.SqlCallable<R> call) throws SQLException {
+        SqlMetrics sink = this.metrics;
+        long slowMillis = this.slowQueryMillis;
+        if (null == sink && slowMillis < 0) {
+            return call.call();
+        }
+        long start = System.nanoTime();
+        R result = null;
+        boolean error = true;
+        try {
+            result = call.call();
+            error = false;
+            return result;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            if (null != sink) {
+                sink.record(sql, elapsed, error ? 0 : rows(result), error);
+            }
+            if (slowMillis >= 0 && elapsed >= TimeUnit.MILLISECONDS.toNanos(slowMillis)) {
+                log.warn("slow sql {}ms{}: {} params: {}", TimeUnit.NANOSECONDS.toMillis(elapsed), error ? " (failed)" : "",
+                        sql, formatParams(params, redactParams));
+            }
+        }
+    }
+
+    /**
+     * 查询取返回的行数, 写入取影响行数, 批处理中SUCCESS_NO_INFO按1行计
+     */
+    private static long rows(Object result) {
+        if (null == result) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Number) {
+            return ((Number) result).longValue();
+        }
+        if (result instanceof int[]) {
+            long rows = 0;
+            for (int count : (int[]) result) {
+                rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+            }
+            return rows;
+        }
+        return 1;
+    }
+
+    /**
+     * redact为true时只输出参数类型, 如 [String, Long, null]; 批处理只输出首行及总行数
+     */
+    static String formatParams(Object params, boolean redact) {
+        if (null == params) {
+            return "[]";
+        }
+        if (params instanceof Object[][]) {
+            Object[][] rows = (Object[][]) params;
+            return rows.length == 0 ? "[]" : formatParams(rows[0], redact) + " x " + rows.length + " rows";
+        }
+        if (params instanceof List) {
+            List<?> rows = (List<?>) params;
+            return rows.isEmpty() ? "[]" : formatParams(rows.get(0), redact) + " x " + rows.size() + " statements";
+        }
+        Object[] values = (Object[]) params;
+        if (!redact) {
+            return Arrays.deepToString(values);
+        }
+        StringBuilder types = new StringBuilder("[");
+        for (int i = 0; i < values.length; i++) {
+            types.append(i == 0 ? "" : ", ").append(null == values[i] ? "null" : values[i].getClass().getSimpleName());
+        }
+        return types.append(']').toString();
+    }
+
+    /**
+     * 去掉语句结尾的分号, Oracle不接受带分号的单条语句
+     */
+    @Override
+    protected PreparedStatement prepareStatement(Connection conn, String sql) throws SQLException {
+        return super.prepareStatement(conn, statementSql(sql));
+    }
+
+    static String statementSql(String sql) {
+        int end = sql.length();
+        while (end > 0 && (sql.charAt(end - 1) == ';' || Character.isWhitespace(sql.charAt(end - 1)))) {
+            end--;
+        }
+        return end == sql.length() ? sql : sql.substring(0, end);
+    }
+
+    /**
+     * 数据源的JDBC url, 用于选择方言
+     */
+    public String getUrl() throws SQLException {
+        DataSource dataSource = this.getDataSource();
+        if (dataSource instanceof DruidDataSource) {
+            return ((DruidDataSource) dataSource).getUrl();
+        }
+        Connection connection = this.prepareConnection();
+        try {
+            return connection.getMetaData().getURL();
+        } finally {
+            close(connection);
+        }
+    }
+
     public PK insertReturnKey(String sql, Object... params) throws SQLException {
+        return written(timed(sql, params, () -> doInsertReturnKey(sql, params)));
+    }
+
+    private PK doInsertReturnKey(String sql, Object... params) throws SQLException {
         Connection connection = this.prepareConnection();
         PreparedStatement stmt = null;
-
+        ResultSet rsKey = null;
+        PK key = null;
         try {
-            stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            stmt = connection.prepareStatement(statementSql(sql), Statement.RETURN_GENERATED_KEYS);
             this.fillStatement(stmt, params);
             stmt.executeUpdate();
-            ResultSet rsKey = stmt.getGeneratedKeys();
-            PK k = null;
+            rsKey = stmt.getGeneratedKeys();
             if (rsKey.next()) {
-                k = (PK) rsKey.getObject(1, Serializable.class);
+                key = (PK) rsKey.getObject(1);
             }
-            return k;
         } catch (SQLException e) {
             this.rethrow(e, sql, params);
+        } finally {
+            closeAll(rsKey, stmt, connection);
+        }
+        return key;
+    }
 
+    /**
+     * 依次关闭结果集、语句和连接, 前一个关闭失败不影响后续关闭
+     */
+    private void closeAll(ResultSet rs, Statement stmt, Connection connection) throws SQLException {
+        try {
+            close(rs);
+        } finally {
+            try {
+                close(stmt);
+            } finally {
+                close(connection);
+            }
+        }
+    }
+
+    /**
+     * 流式查询: 只读、只进游标, 按fetchSize分批拉取, 逐行回调后关闭连接
+     * MySQL下fetchSize取Integer.MIN_VALUE为逐行流式读取, 取正数需配合useCursorFetch=true
+     *
+     * @return 处理的行数
+     */
+    public long queryStream(String sql, int fetchSize, RowHandler<ResultSet> handler, Object... params) throws SQLException {
+        return timed(sql, params, () -> doQueryStream(sql, fetchSize, handler, params));
+    }
+
+    private long doQueryStream(String sql, int fetchSize, RowHandler<ResultSet> handler, Object... params) throws SQLException {
+        Connection connection = this.prepareConnection();
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        long rows = 0;
+        try {
+            stmt = connection.prepareStatement(statementSql(sql), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(fetchSize);
+            this.fillStatement(stmt, params);
+            rs = stmt.executeQuery();
+            while (rs.next()) {
+                handler.handle(rs);
+                rows++;
+            }
+        } catch (SQLException e) {
+            this.rethrow(e, sql, params);
+        } finally {
+            closeAll(rs, stmt, connection);
+        }
+        return rows;
+    }
+
+    /**
+     * MySQL LOAD DATA LOCAL INFILE, 数据从input流式读取, 不落临时文件; 需驱动允许allowLoadLocalInfile
+     *
+     * @return 导入的行数
+     */
+    public long loadLocalInfile(String sql, InputStream input) throws SQLException {
+        return written(timed(sql, null, () -> doLoadLocalInfile(sql, input)));
+    }
+
+    private long doLoadLocalInfile(String sql, InputStream input) throws SQLException {
+        Connection connection = this.prepareConnection();
+        Statement stmt = null;
+        long rows = 0;
+        try {
+            stmt = connection.createStatement();
+            if (!stmt.isWrapperFor(JdbcStatement.class)) {
+                throw new SQLFeatureNotSupportedException("当前驱动不支持LOAD DATA LOCAL INFILE");
+            }
+            stmt.unwrap(JdbcStatement.class).setLocalInfileInputStream(input);
+            rows = stmt.executeUpdate(sql);
+        } catch (SQLException e) {
+            this.rethrow(e, sql);
+        } finally {
+            try {
+                close(stmt);
+            } finally {
+                close(connection);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * PostgreSQL COPY ... FROM STDIN, 数据从input流式读取
+     *
+     * @return 导入的行数
+     */
+    public long copyIn(String sql, InputStream input) throws SQLException {
+        return written(timed(sql, null, () -> doCopyIn(sql, input)));
+    }
+
+    private long doCopyIn(String sql, InputStream input) throws SQLException {
+        Connection connection = this.prepareConnection();
+        long rows = 0;
+        try {
+            if (!PgCopy.isCopyConnection(connection)) {
+                throw new SQLFeatureNotSupportedException("当前驱动不支持COPY FROM STDIN");
+            }
+            rows = PgCopy.copyIn(connection, sql, input);
+        } catch (SQLException e) {
+            this.rethrow(e, sql);
+        } catch (IOException e) {
+            throw new SQLException("COPY数据流读取失败: " + sql, e);
+        } finally {
+            close(connection);
+        }
+        return rows;
+    }
+
+    /**
+     * 数据源是否为PostgreSQL驱动连接, 即能否使用 {@link #copyIn(String, InputStream)}; pgjdbc不在classpath时返回false
+     */
+    public boolean supportsCopy() throws SQLException {
+        Connection connection = this.prepareConnection();
+        try {
+            return PgCopy.isCopyConnection(connection);
+        } finally {
+            close(connection);
+        }
+    }
+
+    /**
+     * 能否使用 {@link #loadLocalInfile(String, InputStream)}: MySQL驱动连接, 客户端开启allowLoadLocalInfile,
+     * 且服务端local_infile为ON(MySQL 8默认OFF)
+     */
+    public boolean supportsLocalInfile() throws SQLException {
+        Connection connection = this.prepareConnection();
+        try {
+            if (!connection.isWrapperFor(JdbcConnection.class)) {
+                return false;
+            }
+            String allow = connection.unwrap(JdbcConnection.class).getPropertySet().exposeAsProperties()
+                    .getProperty("allowLoadLocalInfile");
+            if (null != allow && !Boolean.parseBoolean(allow)) {
+                return false;
+            }
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery("select @@local_infile")) {
+                String localInfile = rs.next() ? rs.getString(1) : null;
+                return "1".equals(localInfile) || "ON".equalsIgnoreCase(localInfile);
+            }
+        } finally {
+            close(connection);
+        }
+    }
+
+    /**
+     * 数据源是否为MySQL驱动(Connector/J)连接
+     */
+    public boolean isMysqlConnection() throws SQLException {
+        Connection connection = this.prepareConnection();
+        try {
+            return connection.isWrapperFor(JdbcConnection.class);
+        } finally {
+            close(connection);
+        }
+    }
+
+    /**
+     * MySQL驱动的连接属性, 如 useAffectedRows; 非MySQL驱动连接返回null
+     */
+    public String mysqlProperty(String name) throws SQLException {
+        Connection connection = this.prepareConnection();
+        try {
+            if (!connection.isWrapperFor(JdbcConnection.class)) {
+                return null;
+            }
+            return connection.unwrap(JdbcConnection.class).getPropertySet().exposeAsProperties().getProperty(name);
+        } finally {
+            close(connection);
+        }
+    }
+
+    /**
+     * 在同一连接上执行多条查询, 结果按顺序交给对应的handler;
+     * multiStatement为true时拼成一条多语句SQL一次发送
+     */
+    public List<Object> queryBatch(List<String> sqls, List<Object[]> params, List<ResultSetHandler<?>> handlers,
+                                   boolean multiStatement) throws SQLException {
+        Connection connection = this.prepareConnection();
+        try {
+            return multiStatement
+                    ? timed(String.join("", sqls), params, () -> queryMultiStatement(connection, sqls, params, handlers))
+                    : querySequential(connection, sqls, params, handlers);
+        } finally {
+            close(connection);
+        }
+    }
+
+    private List<Object> queryMultiStatement(Connection connection, List<String> sqls, List<Object[]> params,
+                                             List<ResultSetHandler<?>> handlers) throws SQLException {
+        StringBuilder sql = new StringBuilder();
+        List<Object> allParams = new ArrayList<>();
+        for (int i = 0; i < sqls.size(); i++) {
+            String single = sqls.get(i).trim();
+            sql.append(single.endsWith(";") ? single : single + ";");
+            allParams.addAll(Arrays.asList(params.get(i)));
+        }
+        List<Object> results = new ArrayList<>(sqls.size());
+        PreparedStatement stmt = null;
+        try {
+            stmt = connection.prepareStatement(sql.toString());
+            this.fillStatement(stmt, allParams.toArray());
+            boolean isResultSet = stmt.execute();
+            while (results.size() < handlers.size()) {
+                if (isResultSet) {
+                    try (ResultSet rs = stmt.getResultSet()) {
+                        results.add(handlers.get(results.size()).handle(rs));
+                    }
+                } else if (stmt.getUpdateCount() == -1) {
+                    break;
+                }
+                isResultSet = stmt.getMoreResults();
+            }
+            if (results.size() != handlers.size()) {
+                throw new SQLDataException("多语句查询结果数" + results.size() + "与查询数" + handlers.size() + "不一致");
+            }
+        } catch (SQLException e) {
+            this.rethrow(e, sql.toString(), allParams.toArray());
         } finally {
             close(stmt);
         }
-        return null;
+        return results;
+    }
+
+    private List<Object> querySequential(Connection connection, List<String> sqls, List<Object[]> params,
+                                         List<ResultSetHandler<?>> handlers) throws SQLException {
+        List<Object> results = new ArrayList<>(sqls.size());
+        for (int i = 0; i < sqls.size(); i++) {
+            String sql = sqls.get(i);
+            ResultSetHandler<?> handler = handlers.get(i);
+            Object[] param = params.get(i);
+            results.add(timed(sql, param, () -> this.query(connection, sql, handler, param)));
+        }
+        return results;
+    }
+
+    /**
+     * 批量插入并返回自增主键, 多行VALUES语句或addBatch批次均按执行顺序返回
+     */
+    public List<PK> batchInsertReturnKeys(String sql, Object[][] params, String... keyColumns) throws SQLException {
+        return written(timed(sql, params, () -> doBatchInsertReturnKeys(sql, params, keyColumns)));
+    }
+
+    private List<PK> doBatchInsertReturnKeys(String sql, Object[][] params, String... keyColumns) throws SQLException {
+        Connection connection = this.prepareConnection();
+        PreparedStatement stmt = null;
+        ResultSet rsKey = null;
+        List<PK> keys = new ArrayList<>(params.length);
+        try {
+            stmt = keyColumns.length > 0
+                    ? connection.prepareStatement(statementSql(sql), keyColumns)
+                    : connection.prepareStatement(statementSql(sql), Statement.RETURN_GENERATED_KEYS);
+            for (Object[] param : params) {
+                this.fillStatement(stmt, param);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            rsKey = stmt.getGeneratedKeys();
+            while (rsKey.next()) {
+                keys.add((PK) rsKey.getObject(1));
+            }
+        } catch (SQLException e) {
+            this.rethrow(e, sql, (Object[]) params);
+        } finally {
+            closeAll(rsKey, stmt, connection);
+        }
+        return keys;
     }
 
 }
@@ -0,0 +1,34 @@
+package com.hui.common.dao.core;
+
+import java.io.Serializable;
+
+/**
+ * <code>DaoCache</code>
+ * <desc>
+ * 描述： 单表按主键的二级缓存, 由 {@link BaseDao#selectOne} 读取, 同一BaseDao的写操作负责失效
+ * <desc/>
+ * Creation Time: 2019/12/18 20:30.
+ *
+ * @author Gary.Hu
+ */
+public interface DaoCache<V> {
+
+    /**
+     * 命中返回缓存值, 未命中或已过期返回null
+     */
+    V get(Serializable id);
+
+    /**
+     * 当前失效版本号, 查库前获取, 写回缓存时传入
+     */
+    long stamp();
+
+    /**
+     * 写入缓存; 若查库期间发生过失效(stamp已变化)则放弃写入, 避免旧数据回填
+     */
+    void put(Serializable id, V value, long stamp);
+
+    void invalidate(Serializable id);
+
+    void invalidateAll();
+}
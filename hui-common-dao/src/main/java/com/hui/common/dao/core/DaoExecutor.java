@@ -0,0 +1,117 @@
+package com.hui.common.dao.core;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <code>DaoExecutor</code>
+ * <desc>
+ * 描述： 异步DAO专用执行器. JDK21+使用虚拟线程, 否则使用固定大小的平台线程池;
+ * 同时执行的任务数受maxConcurrency限制(一般与连接池maxActive一致), 超出时调用方最多等待acquireTimeout,
+ * 仍无空位则返回以 RejectedExecutionException 失败的Future, 避免任务在连接池前无限堆积
+ * <desc/>
+ * Creation Time: 2019/12/21 20:40.
+ *
+ * @author Gary.Hu
+ */
+@Slf4j
+public class DaoExecutor {
+
+    private final ExecutorService executorService;
+    private final Semaphore permits;
+    private final long acquireTimeoutMillis;
+
+    public DaoExecutor(ExecutorService executorService, int maxConcurrency, long acquireTimeoutMillis) {
+        this.executorService = executorService;
+        this.permits = new Semaphore(maxConcurrency);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    /**
+     * 按运行时JDK选择虚拟线程或平台线程池
+     */
+    public static DaoExecutor create(int maxConcurrency, long acquireTimeoutMillis) {
+        ExecutorService virtual = virtualThreadExecutor();
+        ExecutorService executorService = null != virtual ? virtual : platformExecutor(maxConcurrency);
+        return new DaoExecutor(executorService, maxConcurrency, acquireTimeoutMillis);
+    }
+
+    public static ExecutorService platformExecutor(int threads) {
+        AtomicInteger index = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "hui-dao-async-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            log.debug("virtual threads not available, use platform thread pool");
+            return null;
+        }
+    }
+
+    public <R> CompletableFuture<R> submit(SqlCallable<R> callable) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                future.completeExceptionally(new RejectedExecutionException("DAO并发已满, 等待" + acquireTimeoutMillis + "ms后仍无空位"));
+                return future;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            return future;
+        }
+        try {
+            executorService.execute(() -> {
+                // 先释放空位再完成Future, 保证回调中发起的新请求能拿到空位
+                R result;
+                try {
+                    result = callable.call();
+                } catch (Throwable e) {
+                    permits.release();
+                    future.completeExceptionally(e);
+                    return;
+                }
+                permits.release();
+                future.complete(result);
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 当前可用的并发空位
+     */
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    public void shutdown() {
+        executorService.shutdown();
+    }
+
+    @FunctionalInterface
+    public interface SqlCallable<R> {
+        R call() throws SQLException;
+    }
+}
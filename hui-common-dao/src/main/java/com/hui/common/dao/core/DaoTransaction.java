@@ -0,0 +1,202 @@
+package com.hui.common.dao.core;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <code>DaoTransaction</code>
+ * <desc>
+ * 描述： 线程绑定的事务. 事务期间当前线程对同一数据源的所有操作(不论经过哪个RunnerDao/BaseDao)共用一个连接,
+ * 回调正常返回时提交, 抛出异常或标记rollbackOnly时回滚; 嵌套调用加入外层事务.
+ * commitEvery大于0时按语句边界每累计写入commitEvery行提交一次, 用于长时间导入, 此时回滚只撤销最后一次提交之后的写入.
+ * 其它线程(如chunkExecutor、AsyncRunnerDao)上的操作不参与事务
+ * <desc/>
+ * Creation Time: 2019/12/28 14:20.
+ *
+ * @author Gary.Hu
+ */
+@Slf4j
+public class DaoTransaction {
+
+    private static final ThreadLocal<Map<DataSource, DaoTransaction>> CURRENT = new ThreadLocal<>();
+
+    private final DataSource dataSource;
+    @Getter
+    private final Connection connection;
+    private final boolean previousAutoCommit;
+    private final List<Runnable> afterCompletion = new ArrayList<>();
+
+    /**
+     * 每累计写入多少行提交一次, 小于等于0表示只在结束时提交
+     */
+    @Getter
+    @Setter
+    private int commitEvery;
+    /**
+     * 已提交的写入行数
+     */
+    @Getter
+    private long committedRows;
+    /**
+     * 最后一次提交之后写入的行数
+     */
+    @Getter
+    private long pendingRows;
+    @Getter
+    private boolean rollbackOnly;
+
+    private DaoTransaction(DataSource dataSource, Connection connection, boolean previousAutoCommit, int commitEvery) {
+        this.dataSource = dataSource;
+        this.connection = connection;
+        this.previousAutoCommit = previousAutoCommit;
+        this.commitEvery = commitEvery;
+    }
+
+    /**
+     * 当前线程在该数据源上的事务, 无事务返回null
+     */
+    public static DaoTransaction current(DataSource dataSource) {
+        Map<DataSource, DaoTransaction> transactions = CURRENT.get();
+        return null == transactions ? null : transactions.get(dataSource);
+    }
+
+    /**
+     * 在事务中执行callback, 当前线程已有该数据源的事务时直接加入
+     */
+    static <R> R run(DataSource dataSource, int commitEvery, Callback<R> callback) throws SQLException {
+        DaoTransaction current = current(dataSource);
+        if (null != current) {
+            try {
+                return callback.doInTransaction(current);
+            } catch (SQLException | RuntimeException | Error e) {
+                current.rollbackOnly = true;
+                throw e;
+            }
+        }
+        DaoTransaction transaction = begin(dataSource, commitEvery);
+        try {
+            R result = callback.doInTransaction(transaction);
+            if (transaction.rollbackOnly) {
+                transaction.connection.rollback();
+            } else {
+                transaction.commit();
+            }
+            return result;
+        } catch (SQLException | RuntimeException | Error e) {
+            try {
+                transaction.connection.rollback();
+            } catch (SQLException rollbackError) {
+                e.addSuppressed(rollbackError);
+            }
+            throw e;
+        } finally {
+            transaction.end();
+        }
+    }
+
+    private static DaoTransaction begin(DataSource dataSource, int commitEvery) throws SQLException {
+        Connection connection = dataSource.getConnection();
+        DaoTransaction transaction;
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            if (autoCommit) {
+                connection.setAutoCommit(false);
+            }
+            transaction = new DaoTransaction(dataSource, connection, autoCommit, commitEvery);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        Map<DataSource, DaoTransaction> transactions = CURRENT.get();
+        if (null == transactions) {
+            transactions = new IdentityHashMap<>(4);
+            CURRENT.set(transactions);
+        }
+        transactions.put(dataSource, transaction);
+        return transaction;
+    }
+
+    /**
+     * 提交当前已写入的数据, 之后的操作进入新的事务
+     */
+    public void commit() throws SQLException {
+        connection.commit();
+        committedRows += pendingRows;
+        pendingRows = 0;
+        runAfterCompletion();
+    }
+
+    /**
+     * 标记回滚, 回调结束时回滚而不提交
+     */
+    public void setRollbackOnly() {
+        this.rollbackOnly = true;
+    }
+
+    /**
+     * 事务提交或回滚后执行, 如缓存失效
+     */
+    public void afterCompletion(Runnable action) {
+        afterCompletion.add(action);
+    }
+
+    /**
+     * 写操作完成后累计行数, 达到commitEvery时提交
+     */
+    void written(long rows) throws SQLException {
+        pendingRows += rows;
+        if (commitEvery > 0 && pendingRows >= commitEvery && !rollbackOnly) {
+            commit();
+        }
+    }
+
+    /**
+     * 解除绑定并归还连接; 此处的异常只记录日志, 不覆盖回调的结果或异常
+     */
+    private void end() {
+        Map<DataSource, DaoTransaction> transactions = CURRENT.get();
+        transactions.remove(dataSource);
+        if (transactions.isEmpty()) {
+            CURRENT.remove();
+        }
+        runAfterCompletion();
+        try {
+            if (previousAutoCommit) {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            log.warn("restore autoCommit failed", e);
+        } finally {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                log.warn("close transaction connection failed", e);
+            }
+        }
+    }
+
+    private void runAfterCompletion() {
+        for (Runnable action : afterCompletion) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                log.warn("transaction afterCompletion failed", e);
+            }
+        }
+        afterCompletion.clear();
+    }
+
+    @FunctionalInterface
+    public interface Callback<R> {
+        R doInTransaction(DaoTransaction transaction) throws SQLException;
+    }
+}
@@ -0,0 +1,95 @@
+package com.hui.common.dao.core;
+
+import com.hui.common.utils.ConfigUtils;
+import lombok.Data;
+
+/**
+ * <code>DataSourceConfig</code>
+ * <desc>
+ * 描述： 连接池配置, 可通过配置文件按前缀加载, 如 common.cfg 中:
+ * user_db.url=jdbc:mysql://127.0.0.1/hui_cloud_uc
+ * user_db.maxActive=30
+ * <desc/>
+ * Creation Time: 2019/12/19 21:05.
+ *
+ * @author Gary.Hu
+ */
+@Data
+public class DataSourceConfig {
+
+    private static final String DEFAULT_CONFIG = "common.cfg";
+
+    private String driverName;
+    private String url;
+    private String username;
+    private String password;
+    /**
+     * 最大连接数
+     */
+    private int maxActive = 20;
+    /**
+     * 最小空闲连接数
+     */
+    private int minIdle = 5;
+    /**
+     * 初始化连接数
+     */
+    private int initialSize = 5;
+    /**
+     * 获取连接最大等待时间(毫秒)
+     */
+    private long maxWait = 3000L;
+    /**
+     * 连接有效性检测SQL, 未配置时按url的方言选择, 见 {@link BaseDaoStrategy#validationQuery()}
+     */
+    private String validationQuery;
+    private boolean testWhileIdle = true;
+    private boolean testOnBorrow = false;
+    /**
+     * 每个连接缓存的PreparedStatement数, 小于等于0表示不缓存
+     */
+    private int preparedStatementCacheSize = 50;
+
+    public DataSourceConfig() {
+    }
+
+    public DataSourceConfig(String driverName, String url, String username, String password) {
+        this.driverName = driverName;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    /**
+     * 从 common.cfg 读取 {prefix}.xxx 配置, 未配置的项使用默认值
+     */
+    public static DataSourceConfig fromConfig(String prefix) {
+        return fromConfig(DEFAULT_CONFIG, prefix);
+    }
+
+    public static DataSourceConfig fromConfig(String configName, String prefix) {
+        DataSourceConfig config = new DataSourceConfig();
+        config.setDriverName(get(configName, prefix, "driverName", null));
+        config.setUrl(get(configName, prefix, "url", null));
+        config.setUsername(get(configName, prefix, "username", null));
+        config.setPassword(get(configName, prefix, "password", null));
+        config.setMaxActive(Integer.parseInt(get(configName, prefix, "maxActive", String.valueOf(config.maxActive))));
+        config.setMinIdle(Integer.parseInt(get(configName, prefix, "minIdle", String.valueOf(config.minIdle))));
+        config.setInitialSize(Integer.parseInt(get(configName, prefix, "initialSize", String.valueOf(config.initialSize))));
+        config.setMaxWait(Long.parseLong(get(configName, prefix, "maxWait", String.valueOf(config.maxWait))));
+        config.setValidationQuery(get(configName, prefix, "validationQuery", config.validationQuery));
+        config.setTestWhileIdle(Boolean.parseBoolean(get(configName, prefix, "testWhileIdle", String.valueOf(config.testWhileIdle))));
+        config.setTestOnBorrow(Boolean.parseBoolean(get(configName, prefix, "testOnBorrow", String.valueOf(config.testOnBorrow))));
+        config.setPreparedStatementCacheSize(Integer.parseInt(get(configName, prefix, "preparedStatementCacheSize",
+                String.valueOf(config.preparedStatementCacheSize))));
+        if (null == config.getUrl()) {
+            throw new IllegalArgumentException("数据源配置缺少 " + prefix + ".url, config: " + configName);
+        }
+        return config;
+    }
+
+    private static String get(String configName, String prefix, String key, String defaultVal) {
+        String val = ConfigUtils.INSTANCE.get(configName, prefix + "." + key, defaultVal);
+        return null == val ? null : val.trim();
+    }
+}
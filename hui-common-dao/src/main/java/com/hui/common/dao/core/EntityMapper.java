@@ -0,0 +1,272 @@
+package com.hui.common.dao.core;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <code>EntityMapper</code>
+ * <desc>
+ * 描述： 实体与表字段的映射, 每个实体类只反射一次并缓存. 字段名userName对应列名user_name
+ * (匹配时忽略大小写及下划线), 读取时直接从ResultSet按下标取值写入字段, 不经过Map/JSON中转
+ * <desc/>
+ * Creation Time: 2019/12/17 21:40.
+ *
+ * @author Gary.Hu
+ */
+public final class EntityMapper<Entity> {
+
+    private static final Map<Class<?>, EntityMapper<?>> MAPPER_CACHE = new ConcurrentHashMap<>();
+
+    private final Class<Entity> clazz;
+    private final MethodHandle constructor;
+    private final FieldBinding[] bindings;
+    private final Map<String, FieldBinding> bindingIndex;
+
+    private EntityMapper(Class<Entity> clazz) {
+        this.clazz = clazz;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            Constructor<Entity> declared = clazz.getDeclaredConstructor();
+            declared.setAccessible(true);
+            this.constructor = lookup.unreflectConstructor(declared);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException(clazz.getName() + " 缺少无参构造函数", e);
+        }
+        List<FieldBinding> bindingList = new ArrayList<>();
+        for (Class<?> type = clazz; null != type && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                    continue;
+                }
+                field.setAccessible(true);
+                try {
+                    bindingList.add(new FieldBinding(field, lookup.unreflectGetter(field), lookup.unreflectSetter(field)));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalArgumentException("无法访问字段 " + field, e);
+                }
+            }
+        }
+        this.bindings = bindingList.toArray(new FieldBinding[0]);
+        this.bindingIndex = new HashMap<>(bindings.length * 4 / 3 + 1);
+        for (FieldBinding binding : bindings) {
+            bindingIndex.putIfAbsent(normalize(binding.field.getName()), binding);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <Entity> EntityMapper<Entity> of(Class<Entity> clazz) {
+        return (EntityMapper<Entity>) MAPPER_CACHE.computeIfAbsent(clazz, EntityMapper::new);
+    }
+
+    /**
+     * 读取结果集剩余的全部行, 列与字段的对应关系只按元数据计算一次
+     */
+    public List<Entity> mapAll(ResultSet rs) throws SQLException {
+        FieldBinding[] columns = bind(rs.getMetaData());
+        List<Entity> entities = new ArrayList<>();
+        while (rs.next()) {
+            entities.add(read(rs, columns));
+        }
+        return entities;
+    }
+
+    /**
+     * 按列名查找字段, 无对应字段返回null
+     */
+    public FieldBinding binding(String column) {
+        return bindingIndex.get(normalize(column));
+    }
+
+    public FieldBinding[] getBindings() {
+        return bindings;
+    }
+
+    public Entity newInstance() throws SQLException {
+        try {
+            return (Entity) constructor.invoke();
+        } catch (Throwable e) {
+            throw new SQLDataException("实例化 " + clazz.getName() + " 失败", e);
+        }
+    }
+
+    private FieldBinding[] bind(ResultSetMetaData metaData) throws SQLException {
+        FieldBinding[] columns = new FieldBinding[metaData.getColumnCount()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = binding(metaData.getColumnLabel(i + 1));
+        }
+        return columns;
+    }
+
+    private Entity read(ResultSet rs, FieldBinding[] columns) throws SQLException {
+        Entity entity = newInstance();
+        for (int i = 0; i < columns.length; i++) {
+            if (null != columns[i]) {
+                columns[i].set(entity, columns[i].read(rs, i + 1));
+            }
+        }
+        return entity;
+    }
+
+    private static String normalize(String name) {
+        return name.replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 驼峰转下划线: userName -> user_name
+     */
+    private static String toColumn(String fieldName) {
+        StringBuilder column = new StringBuilder(fieldName.length() + 4);
+        for (int i = 0; i < fieldName.length(); i++) {
+            char c = fieldName.charAt(i);
+            if (Character.isUpperCase(c)) {
+                if (i > 0) {
+                    column.append('_');
+                }
+                column.append(Character.toLowerCase(c));
+            } else {
+                column.append(c);
+            }
+        }
+        return column.toString();
+    }
+
+    /**
+     * 单个字段的列名、读写句柄及类型转换
+     */
+    public static final class FieldBinding {
+        private final Field field;
+        private final String column;
+        private final Class<?> type;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        private FieldBinding(Field field, MethodHandle getter, MethodHandle setter) {
+            this.field = field;
+            this.column = toColumn(field.getName());
+            this.type = field.getType();
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+        /**
+         * 读取字段值并转为JDBC可绑定的类型
+         */
+        public Object get(Object entity) throws SQLException {
+            Object value;
+            try {
+                value = getter.invoke(entity);
+            } catch (Throwable e) {
+                throw new SQLDataException("读取字段 " + field + " 失败", e);
+            }
+            if (value instanceof java.util.Date && !(value instanceof java.sql.Date || value instanceof Timestamp)) {
+                return new Timestamp(((java.util.Date) value).getTime());
+            }
+            if (value instanceof Enum) {
+                return ((Enum<?>) value).name();
+            }
+            return value;
+        }
+
+        public void set(Object entity, Object value) throws SQLException {
+            if (null == value && type.isPrimitive()) {
+                return;
+            }
+            try {
+                setter.invoke(entity, value);
+            } catch (Throwable e) {
+                throw new SQLDataException("写入字段 " + field + " 失败, value: " + value, e);
+            }
+        }
+
+        /**
+         * 将生成的主键等外部值转换为字段类型
+         */
+        public Object convert(Object value) {
+            if (null == value || type.isInstance(value)) {
+                return value;
+            }
+            if (value instanceof Number) {
+                Number number = (Number) value;
+                if (type == Long.class || type == long.class) {
+                    return number.longValue();
+                } else if (type == Integer.class || type == int.class) {
+                    return number.intValue();
+                } else if (type == BigInteger.class) {
+                    return new BigInteger(number.toString());
+                } else if (type == BigDecimal.class) {
+                    return new BigDecimal(number.toString());
+                }
+            }
+            return type == String.class ? value.toString() : value;
+        }
+
+        private Object read(ResultSet rs, int index) throws SQLException {
+            Object value;
+            if (type == String.class) {
+                return rs.getString(index);
+            } else if (type == Long.class || type == long.class) {
+                value = rs.getLong(index);
+            } else if (type == Integer.class || type == int.class) {
+                value = rs.getInt(index);
+            } else if (type == Double.class || type == double.class) {
+                value = rs.getDouble(index);
+            } else if (type == Float.class || type == float.class) {
+                value = rs.getFloat(index);
+            } else if (type == Short.class || type == short.class) {
+                value = rs.getShort(index);
+            } else if (type == Byte.class || type == byte.class) {
+                value = rs.getByte(index);
+            } else if (type == Boolean.class || type == boolean.class) {
+                value = rs.getBoolean(index);
+            } else if (type == BigDecimal.class) {
+                return rs.getBigDecimal(index);
+            } else if (type == java.util.Date.class || type == Timestamp.class) {
+                return rs.getTimestamp(index);
+            } else if (type == java.sql.Date.class) {
+                return rs.getDate(index);
+            } else if (type == LocalDateTime.class) {
+                Timestamp timestamp = rs.getTimestamp(index);
+                return null == timestamp ? null : timestamp.toLocalDateTime();
+            } else if (type == LocalDate.class) {
+                java.sql.Date date = rs.getDate(index);
+                return null == date ? null : date.toLocalDate();
+            } else if (type == byte[].class) {
+                return rs.getBytes(index);
+            } else if (type.isEnum()) {
+                String name = rs.getString(index);
+                return null == name ? null : toEnum(name);
+            } else {
+                return convert(rs.getObject(index));
+            }
+            return rs.wasNull() ? null : value;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Object toEnum(String name) {
+            return Enum.valueOf((Class<Enum>) type, name);
+        }
+    }
+}
@@ -16,6 +16,8 @@ import java.util.List;
 public interface IBaseDao<Entity, PK> {
     Entity selectOne(Serializable id) throws SQLException;
 
+    List<Entity> selectByIds(List<? extends Serializable> ids) throws SQLException;
+
     List<Entity> selectAll() throws SQLException;
 
     List<Entity> selectPage(int pageNum, int pageSize) throws SQLException;
@@ -32,5 +34,7 @@ public interface IBaseDao<Entity, PK> {
 
     int batchDelete(List<Serializable> ids) throws SQLException;
 
+    int deleteByIds(List<? extends Serializable> ids) throws SQLException;
+
     int delete(Serializable id) throws SQLException;
 }
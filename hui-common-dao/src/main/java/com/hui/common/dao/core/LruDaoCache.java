@@ -0,0 +1,130 @@
+package com.hui.common.dao.core;
+
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <code>LruDaoCache</code>
+ * <desc>
+ * 描述： 按条数限容的LRU缓存, 支持过期时间及命中统计
+ * <desc/>
+ * Creation Time: 2019/12/18 20:45.
+ *
+ * @author Gary.Hu
+ */
+public class LruDaoCache<V> implements DaoCache<V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, CacheEntry<V>> entries;
+    private final AtomicLong stamp = new AtomicLong();
+
+    @Getter
+    private final AtomicLong hitCount = new AtomicLong();
+    @Getter
+    private final AtomicLong missCount = new AtomicLong();
+    @Getter
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * @param maxSize 最大缓存条数
+     * @param ttl     过期时间, 小于等于0表示不过期
+     */
+    public LruDaoCache(int maxSize, long ttl, TimeUnit unit) {
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.entries = new LinkedHashMap<String, CacheEntry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry<V>> eldest) {
+                if (size() > LruDaoCache.this.maxSize) {
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public V get(Serializable id) {
+        String key = String.valueOf(id);
+        CacheEntry<V> entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (null != entry && entry.isExpired()) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        (null == entry ? missCount : hitCount).incrementAndGet();
+        return null == entry ? null : entry.value;
+    }
+
+    @Override
+    public long stamp() {
+        return stamp.get();
+    }
+
+    @Override
+    public void put(Serializable id, V value, long stamp) {
+        long expireAt = ttlNanos > 0 ? System.nanoTime() + ttlNanos : Long.MAX_VALUE;
+        synchronized (entries) {
+            if (stamp == this.stamp.get()) {
+                entries.put(String.valueOf(id), new CacheEntry<>(value, expireAt));
+            }
+        }
+    }
+
+    @Override
+    public void invalidate(Serializable id) {
+        synchronized (entries) {
+            stamp.incrementAndGet();
+            entries.remove(String.valueOf(id));
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        synchronized (entries) {
+            stamp.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public double hitRate() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "LruDaoCache{size=" + size() + ", hit=" + hitCount + ", miss=" + missCount
+                + ", eviction=" + evictionCount + '}';
+    }
+
+    private static class CacheEntry<V> {
+        private final V value;
+        private final long expireAt;
+
+        CacheEntry(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        boolean isExpired() {
+            return expireAt != Long.MAX_VALUE && System.nanoTime() - expireAt > 0;
+        }
+    }
+}
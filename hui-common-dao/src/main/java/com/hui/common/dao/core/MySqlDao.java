@@ -1,8 +1,14 @@
 package com.hui.common.dao.core;
 
+import lombok.Getter;
+import lombok.Setter;
+
 import java.io.Serializable;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -15,13 +21,190 @@ import java.util.Map;
  * @author Gary.Hu
  */
 public class MySqlDao<PK extends Serializable> extends BaseDao<PK> {
+
+    /**
+     * MySQL驱动约定: fetchSize为Integer.MIN_VALUE时逐行流式读取, 不在客户端缓存结果集
+     */
+    public static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+    /**
+     * MySQL 8: ER_CLIENT_LOCAL_FILES_DISABLED; 更早版本: ER_NOT_ALLOWED_COMMAND
+     */
+    private static final int LOCAL_FILES_DISABLED = 3948;
+    private static final int NOT_ALLOWED_COMMAND = 1148;
+
+    /**
+     * true: 每批改写为一条多行VALUES语句 (等同驱动参数rewriteBatchedStatements)
+     * false: 单行语句addBatch批量提交
+     */
+    @Getter
+    @Setter
+    private boolean rewriteBatchedStatements = false;
+
+    /**
+     * 数据源是否支持 LOAD DATA LOCAL INFILE, 首次导入时按驱动、客户端allowLoadLocalInfile及服务端local_infile检测;
+     * 检测通过但导入时仍被拒绝(如服务端配置变更)时置为false, 之后一律走批量插入
+     */
+    private volatile Boolean localInfile;
+    /**
+     * 单行影响行数能否区分新增/更新/未变化: 需连接参数useAffectedRows=true, 否则未变化的行也返回1.
+     * 为null时首次upsert按MySQL驱动的连接属性检测, 非MySQL驱动视为不能区分; 确认驱动返回影响行数时可显式设为true
+     */
+    @Getter
+    @Setter
+    private volatile Boolean affectedRows;
+    /**
+     * 流式查询是否逐行读取(fetchSize取Integer.MIN_VALUE), 为null时首次流式查询按是否为MySQL驱动连接检测
+     */
+    private volatile Boolean rowStreaming;
+
     public MySqlDao(RunnerDao runnerDao, String tableName, String primaryKey) {
         super(runnerDao, tableName, primaryKey);
     }
 
+    /**
+     * 显式设置后按该值拉取, 不再自动切换逐行流式读取
+     */
+    @Override
+    public void setFetchSize(int fetchSize) {
+        super.setFetchSize(fetchSize);
+        this.rowStreaming = fetchSize == STREAMING_FETCH_SIZE;
+    }
+
+    /**
+     * 未设置fetchSize时, MySQL驱动连接使用 {@link #STREAMING_FETCH_SIZE} 逐行读取,
+     * 其他驱动(如H2, 不接受负数fetchSize)使用默认的正数fetchSize
+     */
+    @Override
+    protected int streamFetchSize() throws SQLException {
+        if (null == rowStreaming) {
+            rowStreaming = runnerDao.isMysqlConnection();
+        }
+        return rowStreaming ? STREAMING_FETCH_SIZE : fetchSize;
+    }
+
+    /**
+     * 批量插入, 按字段集合分组后每batchSize行提交一次, 返回的主键与入参顺序一致;
+     * 驱动返回的主键少于行数时见 {@link #fillKeys}
+     */
     @Override
     public List<Serializable> batchInsert(List<Map<String, String>> maps) throws SQLException {
-        return null;
+        Serializable[] keys = new Serializable[maps.size()];
+        for (Map.Entry<List<String>, List<Integer>> group : groupByFields(maps).entrySet()) {
+            String[] fields = group.getKey().toArray(new String[0]);
+            List<Integer> indexes = group.getValue();
+            for (int from = 0; from < indexes.size(); from += batchSize) {
+                List<Integer> chunk = indexes.subList(from, Math.min(from + batchSize, indexes.size()));
+                List<PK> chunkKeys = rewriteBatchedStatements
+                        ? insertMultiValues(fields, maps, chunk)
+                        : insertBatch(fields, maps, chunk);
+                fillKeys(keys, group.getKey(), maps, chunk, chunkKeys);
+            }
+        }
+        return Arrays.asList(keys);
+    }
+
+    @Override
+    protected boolean supportsBulkLoad() throws SQLException {
+        if (null == localInfile) {
+            localInfile = runnerDao.supportsLocalInfile();
+        }
+        return localInfile;
+    }
+
+    /**
+     * 编码为制表符分隔流交给 LOAD DATA LOCAL INFILE (需开启allowLoadLocalInfile);
+     * 客户端或服务端拒绝本地导入时还未读取任何行, 改为批量插入并不再尝试
+     */
+    @Override
+    protected long bulkLoad(Iterator<? extends Map<String, String>> rows, String[] fields) throws SQLException {
+        TsvInputStream input = new TsvInputStream(rows, fields);
+        try {
+            return runnerDao.loadLocalInfile(SqlGenerator.loadDataTemplate(tableName, fields), input);
+        } catch (SQLException e) {
+            if (input.getRowCount() > 0 || !isLocalInfileDisabled(e)) {
+                throw e;
+            }
+            localInfile = false;
+            return batchLoad(rows, fields);
+        }
+    }
+
+    private static boolean isLocalInfileDisabled(SQLException e) {
+        for (Throwable cause = e; null != cause; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                int code = ((SQLException) cause).getErrorCode();
+                if (code == LOCAL_FILES_DISABLED || code == NOT_ALLOWED_COMMAND) {
+                    return true;
+                }
+            }
+            String message = cause.getMessage();
+            if (null != message && message.toLowerCase(Locale.ROOT).contains("local data is disabled")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * insert ... on duplicate key update, 主键或唯一键冲突时更新主键以外的字段;
+     * 按字段集合分组后每batchSize行提交一次. rewriteBatchedStatements为false时逐行统计新增/更新
+     * (连接未开启useAffectedRows时新增与未变化都计入unknown, 见 {@link #affectedRows}),
+     * 为true时每批一条多行语句, 只能计入unknown
+     */
+    @Override
+    public UpsertResult batchUpsert(List<Map<String, String>> maps) throws SQLException {
+        UpsertResult result = new UpsertResult();
+        try {
+            for (Map.Entry<List<String>, List<Integer>> group : groupByFields(maps).entrySet()) {
+                String[] fields = group.getKey().toArray(new String[0]);
+                List<Integer> indexes = group.getValue();
+                for (int from = 0; from < indexes.size(); from += batchSize) {
+                    List<Integer> chunk = indexes.subList(from, Math.min(from + batchSize, indexes.size()));
+                    if (rewriteBatchedStatements) {
+                        upsertMultiValues(fields, maps, chunk);
+                        result.addUnknown(chunk.size());
+                    } else if (isAffectedRows()) {
+                        for (int count : upsertBatch(fields, maps, chunk)) {
+                            result.add(count);
+                        }
+                    } else {
+                        for (int count : upsertBatch(fields, maps, chunk)) {
+                            result.addFoundRows(count);
+                        }
+                    }
+                }
+            }
+        } finally {
+            evictUpserted(maps);
+        }
+        return result;
+    }
+
+    private boolean isAffectedRows() throws SQLException {
+        if (null == affectedRows) {
+            affectedRows = Boolean.parseBoolean(runnerDao.mysqlProperty("useAffectedRows"));
+        }
+        return affectedRows;
+    }
+
+    private int[] upsertBatch(String[] fields, List<Map<String, String>> maps, List<Integer> chunk) throws SQLException {
+        String sql = SqlGenerator.upsertTemplate(tableName, 1, primaryKey, fields);
+        return runnerDao.batchExecute(sql, batchParams(maps, chunk));
+    }
+
+    private int upsertMultiValues(String[] fields, List<Map<String, String>> maps, List<Integer> chunk) throws SQLException {
+        String sql = SqlGenerator.upsertTemplate(tableName, chunk.size(), primaryKey, fields);
+        return runnerDao.execute(sql, rowParams(fields, maps, chunk));
+    }
+
+    private List<PK> insertBatch(String[] fields, List<Map<String, String>> maps, List<Integer> chunk) throws SQLException {
+        String sql = SqlGenerator.insertTemplate(tableName, fields);
+        return runnerDao.batchInsertReturnKeys(sql, batchParams(maps, chunk));
+    }
+
+    private List<PK> insertMultiValues(String[] fields, List<Map<String, String>> maps, List<Integer> chunk) throws SQLException {
+        String sql = SqlGenerator.batchInsertTemplate(tableName, chunk.size(), fields);
+        return runnerDao.batchInsertReturnKeys(sql, new Object[][]{rowParams(fields, maps, chunk)});
     }
 
 }
@@ -0,0 +1,80 @@
+package com.hui.common.dao.core;
+
+import java.io.Serializable;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <code>OracleDao</code>
+ * <desc>
+ * 描述： Oracle方言(12c+). 分页 offset ? rows fetch next ? rows only, upsert为 merge into ... using dual;
+ * 批量写入走JDBC批处理, 驱动以数组绑定一次发送整批参数. 驱动不支持批处理返回自增主键,
+ * 未携带主键的行逐行插入取回主键, 大批量写入建议预先分配主键(序列或雪花ID)
+ * <desc/>
+ * Creation Time: 2019/12/25 16:05.
+ *
+ * @author Gary.Hu
+ */
+public class OracleDao<PK extends Serializable> extends BaseDao<PK> {
+
+    public OracleDao(RunnerDao runnerDao, String tableName, String primaryKey) {
+        super(runnerDao, tableName, primaryKey);
+    }
+
+    @Override
+    protected SqlGenerator.SelectBuilder limit(SqlGenerator.SelectBuilder builder, Integer offset, int size) {
+        return null == offset ? builder.fetchFirst(size) : builder.offsetFetch(offset, size);
+    }
+
+    /**
+     * 携带主键的行每batchSize行批量提交, 返回入参中的主键; 未携带主键的行逐行插入并返回生成的主键
+     */
+    @Override
+    public List<Serializable> batchInsert(List<Map<String, String>> maps) throws SQLException {
+        Serializable[] keys = new Serializable[maps.size()];
+        for (Map.Entry<List<String>, List<Integer>> group : groupByFields(maps).entrySet()) {
+            String[] fields = group.getKey().toArray(new String[0]);
+            String sql = SqlGenerator.insertTemplate(tableName, fields);
+            List<Integer> indexes = group.getValue();
+            if (!group.getKey().contains(primaryKey)) {
+                for (Integer index : indexes) {
+                    List<PK> generated = runnerDao.batchInsertReturnKeys(sql, new Object[][]{maps.get(index).values().toArray()}, primaryKey);
+                    keys[index] = generated.isEmpty() ? null : generated.get(0);
+                }
+                continue;
+            }
+            for (int from = 0; from < indexes.size(); from += batchSize) {
+                List<Integer> chunk = indexes.subList(from, Math.min(from + batchSize, indexes.size()));
+                runnerDao.batchExecute(sql, batchParams(maps, chunk));
+                for (Integer index : chunk) {
+                    keys[index] = maps.get(index).get(primaryKey);
+                }
+            }
+        }
+        return Arrays.asList(keys);
+    }
+
+    /**
+     * 逐行merge, 每batchSize行批量提交; Oracle对merge的每行只返回1, 无法区分新增与更新, 计入unknown
+     */
+    @Override
+    public UpsertResult batchUpsert(List<Map<String, String>> maps) throws SQLException {
+        UpsertResult result = new UpsertResult();
+        try {
+            for (Map.Entry<List<String>, List<Integer>> group : groupByFields(maps).entrySet()) {
+                String sql = SqlGenerator.mergeTemplate(tableName, primaryKey, group.getKey().toArray(new String[0]));
+                List<Integer> indexes = group.getValue();
+                for (int from = 0; from < indexes.size(); from += batchSize) {
+                    List<Integer> chunk = indexes.subList(from, Math.min(from + batchSize, indexes.size()));
+                    runnerDao.batchExecute(sql, batchParams(maps, chunk));
+                    result.addUnknown(chunk.size());
+                }
+            }
+        } finally {
+            evictUpserted(maps);
+        }
+        return result;
+    }
+}
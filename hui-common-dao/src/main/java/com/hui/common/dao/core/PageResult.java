@@ -0,0 +1,30 @@
+package com.hui.common.dao.core;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * <code>PageResult</code>
+ * <desc>
+ * 描述： 分页结果, nextToken为下一页的续传标记, 为null表示已无下一页
+ * <desc/>
+ * Creation Time: 2019/12/16 23:05.
+ *
+ * @author Gary.Hu
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class PageResult<T> {
+
+    private List<T> rows;
+
+    private String nextToken;
+
+    public boolean hasNext() {
+        return null != nextToken;
+    }
+}
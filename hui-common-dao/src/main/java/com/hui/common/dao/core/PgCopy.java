@@ -0,0 +1,51 @@
+package com.hui.common.dao.core;
+
+import org.postgresql.PGConnection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * <code>PgCopy</code>
+ * <desc>
+ * 描述： PostgreSQL驱动的COPY接口. pgjdbc为可选依赖, 对PGConnection的引用都收在这里,
+ * 只在PostgreSqlDao导入时才加载; 驱动不在classpath时视为不支持COPY
+ * <desc/>
+ * Creation Time: 2019/12/25 21:10.
+ *
+ * @author Gary.Hu
+ */
+final class PgCopy {
+
+    private static final String PG_CONNECTION = "org.postgresql.PGConnection";
+
+    private static final boolean AVAILABLE = isPresent();
+
+    private PgCopy() {
+    }
+
+    /**
+     * 连接是否为PostgreSQL驱动连接, 驱动不在classpath时直接返回false
+     */
+    static boolean isCopyConnection(Connection connection) throws SQLException {
+        return AVAILABLE && connection.isWrapperFor(PGConnection.class);
+    }
+
+    /**
+     * COPY ... FROM STDIN, 调用前须确认 {@link #isCopyConnection(Connection)}
+     */
+    static long copyIn(Connection connection, String sql, InputStream input) throws SQLException, IOException {
+        return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql, input);
+    }
+
+    private static boolean isPresent() {
+        try {
+            Class.forName(PG_CONNECTION, false, PgCopy.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.hui.common.dao.core;
+
+import java.io.Serializable;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <code>PostgreSqlDao</code>
+ * <desc>
+ * 描述： PostgreSQL方言. 分页 limit ? offset ?, 批量插入为多行VALUES并通过 returning 主键列取回主键,
+ * upsert为 on conflict (pk) do update ... returning (xmax = 0), 导入走 COPY FROM STDIN.
+ * BaseDao的参数均以字符串绑定, url需加上 stringtype=unspecified 由服务端推断类型
+ * <desc/>
+ * Creation Time: 2019/12/25 14:20.
+ *
+ * @author Gary.Hu
+ */
+public class PostgreSqlDao<PK extends Serializable> extends BaseDao<PK> {
+
+    private static final String INSERTED = "inserted";
+    private static final String UPDATED = "updated";
+
+    /**
+     * 数据源是否支持 COPY FROM STDIN, 首次导入时检测
+     */
+    private volatile Boolean copySupported;
+
+    public PostgreSqlDao(RunnerDao runnerDao, String tableName, String primaryKey) {
+        super(runnerDao, tableName, primaryKey);
+    }
+
+    @Override
+    protected SqlGenerator.SelectBuilder limit(SqlGenerator.SelectBuilder builder, Integer offset, int size) {
+        return null == offset ? builder.limit(size) : builder.limitOffset(size, offset);
+    }
+
+    /**
+     * 按字段集合分组, 每batchSize行一条多行VALUES语句, 返回的主键与入参顺序一致;
+     * 驱动返回的主键少于行数时见 {@link #fillKeys}
+     */
+    @Override
+    public List<Serializable> batchInsert(List<Map<String, String>> maps) throws SQLException {
+        Serializable[] keys = new Serializable[maps.size()];
+        for (Map.Entry<List<String>, List<Integer>> group : groupByFields(maps).entrySet()) {
+            String[] fields = group.getKey().toArray(new String[0]);
+            List<Integer> indexes = group.getValue();
+            for (int from = 0; from < indexes.size(); from += batchSize) {
+                List<Integer> chunk = indexes.subList(from, Math.min(from + batchSize, indexes.size()));
+                String sql = SqlGenerator.batchInsertTemplate(tableName, chunk.size(), fields);
+                List<PK> chunkKeys = runnerDao.batchInsertReturnKeys(sql, new Object[][]{rowParams(fields, maps, chunk)}, primaryKey);
+                fillKeys(keys, group.getKey(), maps, chunk, chunkKeys);
+            }
+        }
+        return Arrays.asList(keys);
+    }
+
+    /**
+     * 以主键为冲突目标, 每batchSize行一条语句; 同一批中不能出现重复主键
+     */
+    @Override
+    public UpsertResult batchUpsert(List<Map<String, String>> maps) throws SQLException {
+        UpsertResult result = new UpsertResult();
+        try {
+            for (Map.Entry<List<String>, List<Integer>> group : groupByFields(maps).entrySet()) {
+                String[] fields = group.getKey().toArray(new String[0]);
+                List<Integer> indexes = group.getValue();
+                for (int from = 0; from < indexes.size(); from += batchSize) {
+                    List<Integer> chunk = indexes.subList(from, Math.min(from + batchSize, indexes.size()));
+                    String sql = SqlGenerator.pgUpsertTemplate(tableName, chunk.size(), primaryKey, fields);
+                    List<Map<String, String>> counts = runnerDao.execute(sql, rs -> {
+                        int inserted = 0;
+                        int updated = 0;
+                        while (rs.next()) {
+                            if (rs.getBoolean(1)) {
+                                inserted++;
+                            } else {
+                                updated++;
+                            }
+                        }
+                        Map<String, String> count = new HashMap<>(4);
+                        count.put(INSERTED, String.valueOf(inserted));
+                        count.put(UPDATED, String.valueOf(updated));
+                        return count;
+                    }, rowParams(fields, maps, chunk));
+                    int returned = 0;
+                    for (Map<String, String> count : counts) {
+                        int inserted = Integer.parseInt(count.get(INSERTED));
+                        int updated = Integer.parseInt(count.get(UPDATED));
+                        result.addInserted(inserted);
+                        result.addUpdated(updated);
+                        returned += inserted + updated;
+                    }
+                    // do nothing 的冲突行不返回
+                    result.addUnchanged(chunk.size() - returned);
+                }
+            }
+        } finally {
+            evictUpserted(maps);
+        }
+        return result;
+    }
+
+    @Override
+    protected boolean supportsBulkLoad() throws SQLException {
+        if (null == copySupported) {
+            copySupported = runnerDao.supportsCopy();
+        }
+        return copySupported;
+    }
+
+    /**
+     * 编码为COPY文本格式流交给 COPY ... FROM STDIN
+     */
+    @Override
+    protected long bulkLoad(Iterator<? extends Map<String, String>> rows, String[] fields) throws SQLException {
+        return runnerDao.copyIn(SqlGenerator.copyTemplate(tableName, fields), new TsvInputStream(rows, fields));
+    }
+}
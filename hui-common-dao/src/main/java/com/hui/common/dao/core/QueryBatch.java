@@ -0,0 +1,84 @@
+package com.hui.common.dao.core;
+
+import lombok.Getter;
+import org.apache.commons.dbutils.ResultSetHandler;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <code>QueryBatch</code>
+ * <desc>
+ * 描述： 多条互不依赖的查询合并执行, 只占用一个连接;
+ * multiStatement为true时拼成一条多语句SQL一次往返发送(MySQL需在url中开启allowMultiQueries=true),
+ * 否则在同一连接上依次执行. 各查询结果分别交给自己的handler, 执行后通过 {@link Result#get()} 获取
+ * <desc/>
+ * Creation Time: 2019/12/22 15:30.
+ *
+ * @author Gary.Hu
+ */
+public class QueryBatch {
+
+    @Getter
+    private final boolean multiStatement;
+    private final List<String> sqls = new ArrayList<>();
+    private final List<Object[]> params = new ArrayList<>();
+    private final List<ResultSetHandler<?>> handlers = new ArrayList<>();
+    private final List<Result<?>> results = new ArrayList<>();
+
+    public QueryBatch() {
+        this(false);
+    }
+
+    public QueryBatch(boolean multiStatement) {
+        this.multiStatement = multiStatement;
+    }
+
+    public <R> Result<R> add(String sql, ResultSetHandler<R> handler, Object... params) {
+        this.sqls.add(sql);
+        this.params.add(params);
+        this.handlers.add(handler);
+        Result<R> result = new Result<>();
+        this.results.add(result);
+        return result;
+    }
+
+    public int size() {
+        return sqls.size();
+    }
+
+    /**
+     * 在runnerDao的一个连接上执行全部查询
+     */
+    public void execute(RunnerDao<?, ?> runnerDao) throws SQLException {
+        if (sqls.isEmpty()) {
+            return;
+        }
+        List<Object> values = runnerDao.queryBatch(sqls, params, handlers, multiStatement);
+        for (int i = 0; i < results.size(); i++) {
+            results.get(i).complete(values.get(i));
+        }
+    }
+
+    /**
+     * 单条查询的结果占位
+     */
+    public static class Result<R> {
+        private R value;
+        private boolean done;
+
+        @SuppressWarnings("unchecked")
+        private void complete(Object value) {
+            this.value = (R) value;
+            this.done = true;
+        }
+
+        public R get() {
+            if (!done) {
+                throw new IllegalStateException("QueryBatch尚未执行");
+            }
+            return value;
+        }
+    }
+}
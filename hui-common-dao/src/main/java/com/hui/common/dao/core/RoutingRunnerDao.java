@@ -0,0 +1,236 @@
+package com.hui.common.dao.core;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.commons.dbutils.ResultSetHandler;
+
+import javax.sql.DataSource;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <code>RoutingRunnerDao</code>
+ * <desc>
+ * 描述： 读写分离, 查询(query/queryList/queryStream/queryBatch)路由到只读从库, 写操作走主库;
+ * 可开启写后粘滞: 同一线程写入后一段时间内的查询仍走主库, 避免读到从库延迟数据; 主库事务中的查询全部走主库
+ * <desc/>
+ * Creation Time: 2019/12/20 22:15.
+ *
+ * @author Gary.Hu
+ */
+public class RoutingRunnerDao<T, PK extends Serializable> extends RunnerDao<T, PK> {
+
+    /**
+     * 从库选择策略
+     */
+    public enum ReadStrategy {
+        /**
+         * 轮询
+         */
+        ROUND_ROBIN,
+        /**
+         * 当前执行中请求最少的从库
+         */
+        LEAST_IN_FLIGHT
+    }
+
+    private final List<Replica<PK>> replicas = new ArrayList<>();
+    private final ReadStrategy readStrategy;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final ThreadLocal<Long> lastWriteNanos = new ThreadLocal<>();
+
+    /**
+     * 写后粘滞主库的时长(毫秒), 小于等于0表示不粘滞
+     */
+    @Getter
+    @Setter
+    private long stickyPrimaryMillis = 0;
+
+    public RoutingRunnerDao(DataSource primary, List<DataSource> replicaDataSources, ReadStrategy readStrategy) {
+        super(primary);
+        this.readStrategy = readStrategy;
+        for (DataSource dataSource : replicaDataSources) {
+            replicas.add(new Replica<>(new CommonQueryRunner<>(dataSource)));
+        }
+    }
+
+    @Override
+    public void setMetrics(SqlMetrics metrics) {
+        super.setMetrics(metrics);
+        replicas.forEach(replica -> replica.queryRunner.setMetrics(metrics));
+    }
+
+    @Override
+    public void setSlowQueryMillis(long slowQueryMillis) {
+        super.setSlowQueryMillis(slowQueryMillis);
+        replicas.forEach(replica -> replica.queryRunner.setSlowQueryMillis(slowQueryMillis));
+    }
+
+    @Override
+    public void setRedactParams(boolean redactParams) {
+        super.setRedactParams(redactParams);
+        replicas.forEach(replica -> replica.queryRunner.setRedactParams(redactParams));
+    }
+
+    @Override
+    protected List<T> queryList(String sql, ResultSetHandler<List<T>> handler, Object... params) throws SQLException {
+        Replica<PK> replica = chooseReplica();
+        if (null == replica) {
+            return super.queryList(sql, handler, params);
+        }
+        replica.inFlight.incrementAndGet();
+        try {
+            return replica.queryRunner.query(sql, handler, params);
+        } finally {
+            replica.inFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    protected long queryStream(String sql, int fetchSize, RowHandler<ResultSet> handler, Object... params) throws SQLException {
+        Replica<PK> replica = chooseReplica();
+        if (null == replica) {
+            return super.queryStream(sql, fetchSize, handler, params);
+        }
+        replica.inFlight.incrementAndGet();
+        try {
+            return replica.queryRunner.queryStream(sql, fetchSize, handler, params);
+        } finally {
+            replica.inFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    protected List<Object> queryBatch(List<String> sqls, List<Object[]> params, List<ResultSetHandler<?>> handlers,
+                                      boolean multiStatement) throws SQLException {
+        Replica<PK> replica = chooseReplica();
+        if (null == replica) {
+            return super.queryBatch(sqls, params, handlers, multiStatement);
+        }
+        replica.inFlight.incrementAndGet();
+        try {
+            return replica.queryRunner.queryBatch(sqls, params, handlers, multiStatement);
+        } finally {
+            replica.inFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    protected int update(String sql) throws SQLException {
+        markWrite();
+        return super.update(sql);
+    }
+
+    @Override
+    protected int update(String sql, Object... params) throws SQLException {
+        markWrite();
+        return super.update(sql, params);
+    }
+
+    @Override
+    protected PK insertReturnKey(String sql, Object... params) throws SQLException {
+        markWrite();
+        return super.insertReturnKey(sql, params);
+    }
+
+    @Override
+    protected List<PK> batchInsertReturnKeys(String sql, Object[][] params, String... keyColumns) throws SQLException {
+        markWrite();
+        return super.batchInsertReturnKeys(sql, params, keyColumns);
+    }
+
+    @Override
+    protected long loadLocalInfile(String sql, InputStream input) throws SQLException {
+        markWrite();
+        return super.loadLocalInfile(sql, input);
+    }
+
+    @Override
+    protected long copyIn(String sql, InputStream input) throws SQLException {
+        markWrite();
+        return super.copyIn(sql, input);
+    }
+
+    @Override
+    protected int[] batchExecute(String sql, Object[][] params) throws SQLException {
+        markWrite();
+        return super.batchExecute(sql, params);
+    }
+
+    @Override
+    protected int execute(String sql, Object... params) throws SQLException {
+        markWrite();
+        return super.execute(sql, params);
+    }
+
+    @Override
+    protected List<T> execute(String sql, ResultSetHandler<T> handler, Object... params) throws SQLException {
+        markWrite();
+        return super.execute(sql, handler, params);
+    }
+
+    /**
+     * 各从库当前执行中的请求数
+     */
+    public int[] inFlight() {
+        int[] inFlight = new int[replicas.size()];
+        for (int i = 0; i < inFlight.length; i++) {
+            inFlight[i] = replicas.get(i).inFlight.get();
+        }
+        return inFlight;
+    }
+
+    /**
+     * 返回null表示走主库: 无从库, 当前线程处于主库事务中, 或处于写后粘滞期
+     */
+    private Replica<PK> chooseReplica() {
+        if (replicas.isEmpty() || null != currentTransaction() || isSticky()) {
+            return null;
+        }
+        if (readStrategy == ReadStrategy.LEAST_IN_FLIGHT) {
+            int start = (nextReplica.getAndIncrement() & Integer.MAX_VALUE) % replicas.size();
+            Replica<PK> least = null;
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica<PK> replica = replicas.get((start + i) % replicas.size());
+                if (null == least || replica.inFlight.get() < least.inFlight.get()) {
+                    least = replica;
+                }
+            }
+            return least;
+        }
+        return replicas.get((nextReplica.getAndIncrement() & Integer.MAX_VALUE) % replicas.size());
+    }
+
+    private boolean isSticky() {
+        Long writeNanos = lastWriteNanos.get();
+        if (null == writeNanos) {
+            return false;
+        }
+        if (System.nanoTime() - writeNanos < TimeUnit.MILLISECONDS.toNanos(stickyPrimaryMillis)) {
+            return true;
+        }
+        lastWriteNanos.remove();
+        return false;
+    }
+
+    private void markWrite() {
+        if (stickyPrimaryMillis > 0) {
+            lastWriteNanos.set(System.nanoTime());
+        }
+    }
+
+    private static class Replica<PK extends Serializable> {
+        private final CommonQueryRunner<PK> queryRunner;
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        Replica(CommonQueryRunner<PK> queryRunner) {
+            this.queryRunner = queryRunner;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.hui.common.dao.core;
+
+import java.sql.SQLException;
+
+/**
+ * <code>RowHandler</code>
+ * <desc>
+ * 描述： 流式查询逐行回调, 每次只处理一行, 不缓存整个结果集
+ * <desc/>
+ * Creation Time: 2019/12/16 22:10.
+ *
+ * @author Gary.Hu
+ */
+@FunctionalInterface
+public interface RowHandler<T> {
+
+    /**
+     * 处理一行数据
+     *
+     * @param row 当前行
+     * @throws SQLException 抛出后终止查询并释放资源
+     */
+    void handle(T row) throws SQLException;
+}
@@ -0,0 +1,211 @@
+package com.hui.common.dao.core;
+
+import java.io.Serializable;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * <code>RowMap</code>
+ * <desc>
+ * 描述： 数组存储的单行数据, 以Map视图对外暴露. 同一结果集的所有行共用一份列名及下标,
+ * 每行只持有一个String[]. 可修改已有列的值, 不可新增或删除列. 按列名取值时忽略大小写,
+ * 兼容Oracle等将未加引号的列名返回为大写的数据库
+ * <desc/>
+ * Creation Time: 2019/12/17 0:12.
+ *
+ * @author Gary.Hu
+ */
+public class RowMap extends AbstractMap<String, String> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Columns columns;
+    private final String[] values;
+
+    public RowMap(Columns columns, String[] values) {
+        this.columns = columns;
+        this.values = values;
+    }
+
+    /**
+     * 读取结果集剩余的全部行, 元数据只读取一次, 按下标取值
+     */
+    public static List<Map<String, String>> mapAll(ResultSet rs) throws SQLException {
+        Columns columns = Columns.of(rs.getMetaData());
+        List<Map<String, String>> dataList = new ArrayList<>();
+        while (rs.next()) {
+            dataList.add(columns.read(rs));
+        }
+        return dataList;
+    }
+
+    /**
+     * 复制当前行, 共享列信息, 值数组独立
+     */
+    public RowMap copy() {
+        return new RowMap(columns, values.clone());
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return columns.indexOf(key) >= 0;
+    }
+
+    @Override
+    public String get(Object key) {
+        int index = columns.indexOf(key);
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public String put(String key, String value) {
+        int index = columns.indexOf(key);
+        if (index < 0) {
+            throw new UnsupportedOperationException("RowMap不支持新增列:" + key);
+        }
+        String old = values[index];
+        values[index] = value;
+        return old;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<Entry<String, String>>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new Iterator<Entry<String, String>>() {
+                    private int index = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < values.length;
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        if (index >= values.length) {
+                            throw new NoSuchElementException();
+                        }
+                        return new RowEntry(index++);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return values.length;
+            }
+        };
+    }
+
+    private class RowEntry implements Entry<String, String> {
+        private final int index;
+
+        RowEntry(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getKey() {
+            return columns.names[index];
+        }
+
+        @Override
+        public String getValue() {
+            return values[index];
+        }
+
+        @Override
+        public String setValue(String value) {
+            String old = values[index];
+            values[index] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+            return getKey().equals(entry.getKey())
+                    && (null == getValue() ? null == entry.getValue() : getValue().equals(entry.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ (null == getValue() ? 0 : getValue().hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    /**
+     * 结果集列名(interned)及列名到下标的索引, 同一结果集的所有行共享;
+     * 先按原列名精确匹配, 未命中时按小写列名匹配
+     */
+    public static final class Columns implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String[] names;
+        private final Map<String, Integer> indexes;
+        private final Map<String, Integer> lowerIndexes;
+
+        private Columns(String[] names) {
+            this.names = names;
+            this.indexes = new HashMap<>(names.length * 4 / 3 + 1);
+            this.lowerIndexes = new HashMap<>(names.length * 4 / 3 + 1);
+            for (int i = 0; i < names.length; i++) {
+                indexes.putIfAbsent(names[i], i);
+                lowerIndexes.putIfAbsent(names[i].toLowerCase(Locale.ROOT), i);
+            }
+        }
+
+        public static Columns of(ResultSetMetaData metaData) throws SQLException {
+            String[] names = new String[metaData.getColumnCount()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = metaData.getColumnLabel(i + 1).intern();
+            }
+            return new Columns(names);
+        }
+
+        /**
+         * 按下标读取当前行
+         */
+        public RowMap read(ResultSet rs) throws SQLException {
+            String[] values = new String[names.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = rs.getString(i + 1);
+            }
+            return new RowMap(this, values);
+        }
+
+        public int indexOf(Object name) {
+            Integer index = indexes.get(name);
+            if (null == index && name instanceof String) {
+                index = lowerIndexes.get(((String) name).toLowerCase(Locale.ROOT));
+            }
+            return null == index ? -1 : index;
+        }
+    }
+}
@@ -3,7 +3,9 @@ package com.hui.common.dao.core;
 import org.apache.commons.dbutils.ResultSetHandler;
 
 import javax.sql.DataSource;
+import java.io.InputStream;
 import java.io.Serializable;
+import java.sql.ResultSet;
 import java.sql.SQLDataException;
 import java.sql.SQLException;
 import java.util.List;
@@ -25,6 +27,48 @@ public class RunnerDao<T, PK extends Serializable> {
 
     private CommonQueryRunner<PK> queryRunner;
 
+    /**
+     * 设置指标接收器, 如 {@link SqlMetricsRegistry}, 为null时不统计
+     */
+    public void setMetrics(SqlMetrics metrics) {
+        queryRunner.setMetrics(metrics);
+    }
+
+    /**
+     * 慢SQL阈值(毫秒), 小于0关闭慢SQL日志
+     */
+    public void setSlowQueryMillis(long slowQueryMillis) {
+        queryRunner.setSlowQueryMillis(slowQueryMillis);
+    }
+
+    /**
+     * 慢SQL日志是否隐藏参数值, 默认隐藏
+     */
+    public void setRedactParams(boolean redactParams) {
+        queryRunner.setRedactParams(redactParams);
+    }
+
+    /**
+     * 在事务中执行callback, 期间当前线程对该数据源的操作共用一个连接, 正常返回时提交, 异常时回滚
+     */
+    public <R> R runInTransaction(DaoTransaction.Callback<R> callback) throws SQLException {
+        return runInTransaction(0, callback);
+    }
+
+    /**
+     * @param commitEvery 每累计写入commitEvery行提交一次, 用于长时间导入; 加入外层事务时不生效
+     */
+    public <R> R runInTransaction(int commitEvery, DaoTransaction.Callback<R> callback) throws SQLException {
+        return DaoTransaction.run(queryRunner.getDataSource(), commitEvery, callback);
+    }
+
+    /**
+     * 当前线程在本数据源上的事务, 无事务返回null
+     */
+    protected DaoTransaction currentTransaction() {
+        return DaoTransaction.current(queryRunner.getDataSource());
+    }
+
     protected T query(String sql, ResultSetHandler<List<T>> handler, Object... params) throws SQLException {
         List<T> resultList = queryList(sql, handler, params);
         if (resultList.size() != 1) {
@@ -37,6 +81,43 @@ public class RunnerDao<T, PK extends Serializable> {
         return queryRunner.query(sql, handler, params);
     }
 
+    protected long queryStream(String sql, int fetchSize, RowHandler<ResultSet> handler, Object... params) throws SQLException {
+        return queryRunner.queryStream(sql, fetchSize, handler, params);
+    }
+
+    protected List<Object> queryBatch(List<String> sqls, List<Object[]> params, List<ResultSetHandler<?>> handlers,
+                                      boolean multiStatement) throws SQLException {
+        return queryRunner.queryBatch(sqls, params, handlers, multiStatement);
+    }
+
+    protected long loadLocalInfile(String sql, InputStream input) throws SQLException {
+        return queryRunner.loadLocalInfile(sql, input);
+    }
+
+    protected boolean supportsLocalInfile() throws SQLException {
+        return queryRunner.supportsLocalInfile();
+    }
+
+    protected boolean isMysqlConnection() throws SQLException {
+        return queryRunner.isMysqlConnection();
+    }
+
+    protected String mysqlProperty(String name) throws SQLException {
+        return queryRunner.mysqlProperty(name);
+    }
+
+    protected long copyIn(String sql, InputStream input) throws SQLException {
+        return queryRunner.copyIn(sql, input);
+    }
+
+    protected boolean supportsCopy() throws SQLException {
+        return queryRunner.supportsCopy();
+    }
+
+    protected String getUrl() throws SQLException {
+        return queryRunner.getUrl();
+    }
+
     protected int update(String sql) throws SQLException {
         return queryRunner.update(sql);
     }
@@ -49,8 +130,11 @@ public class RunnerDao<T, PK extends Serializable> {
         return queryRunner.insertReturnKey(sql, params);
     }
 
-    protected List<PK> batchInsertReturnKeys(){
-        return null;
+    /**
+     * @param keyColumns 需要返回的主键列名, 为空时由驱动决定返回的自增列(PostgreSQL/Oracle需指定)
+     */
+    protected List<PK> batchInsertReturnKeys(String sql, Object[][] params, String... keyColumns) throws SQLException {
+        return queryRunner.batchInsertReturnKeys(sql, params, keyColumns);
     }
 
     protected int[] batchExecute(String sql, Object[][] params) throws SQLException {
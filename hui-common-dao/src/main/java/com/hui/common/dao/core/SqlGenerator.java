@@ -2,31 +2,50 @@ package com.hui.common.dao.core;
 
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * <code>CommonSqlRunner</code>
  * <desc>
- * 描述：
+ * 描述： SQL构建器, 值一律以 ? 占位符输出, 绑定参数通过 {@link #getParams()} 获取
  * <desc/>
  * Creation Time: 2019/12/9 21:28.
  *
  * @author Gary.Hu
  */
+@Slf4j
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
 public class SqlGenerator {
 
+    /**
+     * SQL模板缓存上限, 超出后新结构的语句每次现场生成, 不再缓存
+     */
+    private static final int MAX_TEMPLATES = 4096;
+
+    /**
+     * SQL模板缓存, key: 操作类型:表名:主键:字段列表, 同一结构的语句只生成一次;
+     * 多行VALUES、IN列表等随行数变化的语句不缓存, 由缓存的语句头尾现场拼接
+     */
+    private static final Map<String, String> TEMPLATE_CACHE = new ConcurrentHashMap<>();
+
     private String tableName;
     private String whereCondition;
     private String limitStr;
     private String fieldStr;
     private boolean ignoreNullField;
     private StringBuilder finalSql;
+    @Getter
+    private Object[] params;
 
     public static SelectBuilder selectBuilder() {
         return new SelectBuilder();
@@ -45,10 +64,202 @@ public class SqlGenerator {
     }
 
     public String generator() {
-        this.finalSql = this.finalSql.append(";");
-        System.out.println(finalSql);
-        return finalSql.toString();
+        String sql = this.finalSql.append(";").toString();
+        log.debug("generator sql: {}", sql);
+        return sql;
+    }
+
+    /**
+     * insert into table (f1,f2) values (?,?);
+     */
+    public static String insertTemplate(String tableName, String... fields) {
+        return batchInsertTemplate(tableName, 1, fields);
+    }
+
+    /**
+     * insert into table (f1,f2) values (?,?),(?,?)...; 多行VALUES, 共rows行
+     */
+    public static String batchInsertTemplate(String tableName, int rows, String... fields) {
+        if (rows == 1) {
+            return template(templateKey(SqlType.INSERT, tableName, "", fields),
+                    () -> valuesSql(tableName, 1, fields, ";"));
+        }
+        return valuesSql(tableName, rows, fields, ";");
+    }
+
+    /**
+     * MySQL: insert into table (f1,f2) values (?,?),(?,?) on duplicate key update f2=values(f2);
+     * 主键之外的字段参与更新, 只有主键时更新主键自身(即不修改数据)
+     */
+    public static String upsertTemplate(String tableName, int rows, String primaryKey, String... fields) {
+        String tail = template(templateKey(SqlType.UPSERT, tableName, primaryKey, fields), () -> {
+            String[] updateFields = Arrays.stream(fields).filter(field -> !field.equals(primaryKey)).toArray(String[]::new);
+            if (updateFields.length == 0) {
+                updateFields = new String[]{primaryKey};
+            }
+            StringBuilder sql = new StringBuilder(" on duplicate key update ");
+            for (int i = 0; i < updateFields.length; i++) {
+                sql.append(i == 0 ? "" : ",").append(updateFields[i]).append("=values(").append(updateFields[i]).append(')');
+            }
+            return sql.append(';').toString();
+        });
+        return valuesSql(tableName, rows, fields, tail);
+    }
+
+    /**
+     * PostgreSQL: insert into table (f1,f2) values (?,?),(?,?) on conflict (pk) do update set f2=excluded.f2 returning (xmax = 0);
+     * 返回列为每行是否为新增, 只有主键时冲突行do nothing不返回
+     */
+    public static String pgUpsertTemplate(String tableName, int rows, String primaryKey, String... fields) {
+        String tail = template(templateKey(SqlType.UPSERT, tableName, "pg:" + primaryKey, fields), () -> {
+            StringBuilder sql = new StringBuilder(" on conflict (").append(primaryKey).append(") do ");
+            String[] updateFields = Arrays.stream(fields).filter(field -> !field.equals(primaryKey)).toArray(String[]::new);
+            if (updateFields.length == 0) {
+                sql.append("nothing");
+            } else {
+                sql.append("update set ");
+                for (int i = 0; i < updateFields.length; i++) {
+                    sql.append(i == 0 ? "" : ",").append(updateFields[i]).append("=excluded.").append(updateFields[i]);
+                }
+            }
+            return sql.append(" returning (xmax = 0) as inserted;").toString();
+        });
+        return valuesSql(tableName, rows, fields, tail);
+    }
+
+    /**
+     * insert into table (f1,f2) values (?,?),(?,?)... + tail, 语句头按字段列表缓存, 占位符按行数现场拼接
+     */
+    private static String valuesSql(String tableName, int rows, String[] fields, String tail) {
+        String head = template(templateKey(SqlType.INSERT, tableName, "head", fields),
+                () -> "insert into " + tableName + " (" + String.join(",", fields) + ") values ");
+        StringBuilder sql = new StringBuilder(head.length() + rows * (fields.length * 2 + 2) + tail.length()).append(head);
+        for (int row = 0; row < rows; row++) {
+            sql.append(row == 0 ? "(" : ",(");
+            for (int i = 0; i < fields.length; i++) {
+                sql.append(i == 0 ? "?" : ",?");
+            }
+            sql.append(')');
+        }
+        return sql.append(tail).toString();
+    }
+
+    /**
+     * Oracle: merge into table d using (select ? as f1,? as f2 from dual) s on (d.pk=s.pk)
+     * when matched then update set d.f2=s.f2 when not matched then insert (f1,f2) values (s.f1,s.f2);
+     */
+    public static String mergeTemplate(String tableName, String primaryKey, String... fields) {
+        return template(templateKey(SqlType.UPSERT, tableName, "merge:" + primaryKey, fields), () -> {
+            StringBuilder sql = new StringBuilder("merge into ").append(tableName).append(" d using (select ");
+            for (int i = 0; i < fields.length; i++) {
+                sql.append(i == 0 ? "? as " : ",? as ").append(fields[i]);
+            }
+            sql.append(" from dual) s on (d.").append(primaryKey).append("=s.").append(primaryKey).append(')');
+            String[] updateFields = Arrays.stream(fields).filter(field -> !field.equals(primaryKey)).toArray(String[]::new);
+            if (updateFields.length > 0) {
+                sql.append(" when matched then update set ");
+                for (int i = 0; i < updateFields.length; i++) {
+                    sql.append(i == 0 ? "" : ",").append("d.").append(updateFields[i]).append("=s.").append(updateFields[i]);
+                }
+            }
+            sql.append(" when not matched then insert (").append(String.join(",", fields)).append(") values (");
+            for (int i = 0; i < fields.length; i++) {
+                sql.append(i == 0 ? "s." : ",s.").append(fields[i]);
+            }
+            return sql.append(");").toString();
+        });
+    }
+
+    /**
+     * PostgreSQL: copy table (f1,f2) from stdin; 文本格式, 与LOAD DATA默认格式一致
+     */
+    public static String copyTemplate(String tableName, String... fields) {
+        return template(templateKey(SqlType.INSERT, tableName, "copy", fields),
+                () -> "copy " + tableName + " (" + String.join(",", fields) + ") from stdin");
+    }
+
+    /**
+     * MySQL: load data local infile 'stream' into table t character set utf8mb4 (f1,f2);
+     * 使用默认的制表符分隔、换行结尾、反斜杠转义格式, 文件名仅占位, 数据由驱动的输入流提供
+     */
+    public static String loadDataTemplate(String tableName, String... fields) {
+        return template(templateKey(SqlType.INSERT, tableName, "load", fields),
+                () -> "load data local infile 'stream' into table " + tableName
+                        + " character set utf8mb4 (" + String.join(",", fields) + ");");
+    }
+
+    /**
+     * update table set f1=?,f2=? where pk=?;
+     */
+    public static String updateTemplate(String tableName, String primaryKey, String... fields) {
+        return template(templateKey(SqlType.UPDATE, tableName, primaryKey, fields),
+                () -> updateBuilder().update(tableName).setFields(fields).wherePK(primaryKey).build().generator());
+    }
+
+    /**
+     * delete from table where pk=?;
+     */
+    public static String deleteTemplate(String tableName, String primaryKey) {
+        return template(templateKey(SqlType.DELETE, tableName, primaryKey),
+                () -> deleteBuilder().delete(tableName).wherePK(primaryKey).build().generator());
+    }
+
+    /**
+     * select * from table where pk=?;
+     */
+    public static String selectTemplate(String tableName, String primaryKey) {
+        return template(templateKey(SqlType.SELECT, tableName, primaryKey),
+                () -> selectBuilder().select(tableName).wherePK(primaryKey).build().generator());
+    }
+
+    /**
+     * select * from table where field in (?,?...); 共size个占位符
+     */
+    public static String selectInTemplate(String tableName, String field, int size) {
+        return selectBuilder().select(tableName).in(field, new Object[size]).build().generator();
+    }
 
+    /**
+     * delete from table where field in (?,?...); 共size个占位符
+     */
+    public static String deleteInTemplate(String tableName, String field, int size) {
+        return deleteBuilder().delete(tableName).in(field, new Object[size]).build().generator();
+    }
+
+    /**
+     * 取缓存的模板, 未命中时生成; 缓存达到上限后只生成不缓存
+     */
+    private static String template(String key, Supplier<String> generator) {
+        String sql = TEMPLATE_CACHE.get(key);
+        if (null != sql) {
+            return sql;
+        }
+        if (TEMPLATE_CACHE.size() >= MAX_TEMPLATES) {
+            return generator.get();
+        }
+        // 生成器内部会再取头部模板, 不能放在computeIfAbsent中递归修改同一个map
+        sql = generator.get();
+        String cached = TEMPLATE_CACHE.putIfAbsent(key, sql);
+        return null == cached ? sql : cached;
+    }
+
+    private static String templateKey(SqlType sqlType, String tableName, String qualifier, String... fields) {
+        StringBuilder key = new StringBuilder(sqlType.name()).append(':').append(tableName)
+                .append(':').append(qualifier).append(':');
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                key.append(',');
+            }
+            key.append(fields[i]);
+        }
+        return key.toString();
+    }
+
+    public enum SqlType {
+        /**
+         * 语句类型
+         */
+        SELECT, INSERT, UPDATE, DELETE, UPSERT
     }
 
     public static class WhereBuilder {
@@ -60,34 +271,67 @@ public class SqlGenerator {
         private String whereCondition;
         private String limitStr;
         private String fieldStr;
+        private int fieldCount;
         private boolean ignoreNullField;
+        private boolean hasValues;
+        private List<Object> params = new ArrayList<>();
         private StringBuilder finalSql = new StringBuilder();
 
         public InsertBuilder insert(String tableName) {
             this.tableName = tableName;
-            String sql = String.format("insert into %s ", tableName);
-            this.finalSql.append(sql);
+            this.finalSql.append("insert into ").append(tableName).append(' ');
             return this;
         }
 
         public InsertBuilder fields(String... fields) {
-            this.fieldStr = Arrays.stream(fields).collect(Collectors.joining(","));
-            String sql = String.format("(%s) ", this.fieldStr);
-            this.finalSql.append(sql);
+            this.fieldCount = fields.length;
+            this.fieldStr = String.join(",", fields);
+            this.finalSql.append('(').append(this.fieldStr).append(") ");
+            return this;
+        }
+
+        /**
+         * 追加一行占位符 (?,?,?) 但不绑定参数, 用于生成模板
+         */
+        public InsertBuilder placeholders() {
+            appendRow();
             return this;
         }
 
-        public InsertBuilder values(String... values) {
-            String sql = Arrays.stream(values)
-                    .map(value -> "(" + value + ")")
-                    .collect(Collectors.joining(","));
-            sql = "values ".concat(sql);
-            this.finalSql.append(sql);
+        /**
+         * 追加一行值, 多次调用即为多行插入
+         */
+        public InsertBuilder values(Object... values) {
+            if (values.length != fieldCount) {
+                throw new IllegalArgumentException("values size " + values.length + " not match fields size " + fieldCount);
+            }
+            appendRow();
+            this.params.addAll(Arrays.asList(values));
+            return this;
+        }
+
+        /**
+         * on duplicate key update f1=values(f1),f2=values(f2), 需在所有行之后调用
+         */
+        public InsertBuilder onDuplicateKeyUpdate(String... fields) {
+            this.finalSql.append(" on duplicate key update ");
+            for (int i = 0; i < fields.length; i++) {
+                this.finalSql.append(i == 0 ? "" : ",").append(fields[i]).append("=values(").append(fields[i]).append(')');
+            }
             return this;
         }
 
+        private void appendRow() {
+            this.finalSql.append(hasValues ? "," : "values ").append('(');
+            for (int i = 0; i < fieldCount; i++) {
+                this.finalSql.append(i == 0 ? "?" : ",?");
+            }
+            this.finalSql.append(')');
+            this.hasValues = true;
+        }
+
         public SqlGenerator build() {
-            return new SqlGenerator(tableName, whereCondition, limitStr, fieldStr, ignoreNullField, finalSql);
+            return new SqlGenerator(tableName, whereCondition, limitStr, fieldStr, ignoreNullField, finalSql, params.toArray());
         }
     }
 
@@ -97,19 +341,26 @@ public class SqlGenerator {
         private String limitStr;
         private String fieldStr;
         private boolean ignoreNullField;
+        private List<Object> params = new ArrayList<>();
         private StringBuilder finalSql = new StringBuilder();
 
         public DeleteBuilder delete(String tableName) {
             this.tableName = tableName;
-            String sql = String.format("delete from %s ", tableName);
-            finalSql.append(sql);
+            finalSql.append("delete from ").append(tableName).append(' ');
             return this;
         }
 
-        public DeleteBuilder in(String... ids) {
-            String sql = String.format("in (%s)", String.join(",", ids));
-            this.finalSql.append(sql);
-            return this;
+        /**
+         * where field in (?,?,?)
+         */
+        public DeleteBuilder in(String field, Object... ids) {
+            StringBuilder expression = new StringBuilder(field).append(" in (");
+            for (int i = 0; i < ids.length; i++) {
+                expression.append(i == 0 ? "?" : ",?");
+            }
+            expression.append(')');
+            this.params.addAll(Arrays.asList(ids));
+            return where(expression.toString());
         }
 
         public DeleteBuilder wherePK(String primaryKey) {
@@ -126,7 +377,7 @@ public class SqlGenerator {
         }
 
         public SqlGenerator build() {
-            return new SqlGenerator(tableName, whereCondition, limitStr, fieldStr, ignoreNullField, finalSql);
+            return new SqlGenerator(tableName, whereCondition, limitStr, fieldStr, ignoreNullField, finalSql, params.toArray());
         }
     }
 
@@ -136,21 +387,39 @@ public class SqlGenerator {
         private String limitStr;
         private String fieldStr;
         private boolean ignoreNullField;
+        private List<Object> params = new ArrayList<>();
         private StringBuilder finalSql = new StringBuilder();
 
         public UpdateBuilder update(String tableName) {
             this.tableName = tableName;
-            String sql = String.format("update %s", tableName);
-            this.finalSql.append(sql);
+            this.finalSql.append("update ").append(tableName);
             return this;
         }
 
-        public UpdateBuilder setFields(Map<String,String> maps,String primaryKey) {
+        /**
+         * set f1=?,f2=? , 主键字段会被跳过, 不修改传入的map
+         */
+        public UpdateBuilder setFields(Map<String, String> maps, String primaryKey) {
+            List<String> fields = new ArrayList<>(maps.size());
+            for (Map.Entry<String, String> entry : maps.entrySet()) {
+                if (!entry.getKey().equals(primaryKey)) {
+                    fields.add(entry.getKey());
+                    this.params.add(entry.getValue());
+                }
+            }
+            return setFields(fields.toArray(new String[0]));
+        }
 
-            maps.remove(primaryKey);
-            Set<Map.Entry<String, String>> entries = maps.entrySet();
-            String sql = entries.stream().map(entry -> entry.getKey() + "='" + entry.getValue() + "'").collect(Collectors.joining(","));
-            this.finalSql.append(String.format(" set %s ", sql));
+        /**
+         * set f1=?,f2=? 只生成占位符, 不绑定参数
+         */
+        public UpdateBuilder setFields(String... fields) {
+            this.fieldStr = String.join(",", fields);
+            this.finalSql.append(" set ");
+            for (int i = 0; i < fields.length; i++) {
+                this.finalSql.append(i == 0 ? "" : ",").append(fields[i]).append("=?");
+            }
+            this.finalSql.append(' ');
             return this;
         }
 
@@ -158,6 +427,11 @@ public class SqlGenerator {
             return where(primaryKey + "=?");
         }
 
+        public UpdateBuilder wherePK(String primaryKey, Object id) {
+            this.params.add(id);
+            return wherePK(primaryKey);
+        }
+
         public UpdateBuilder where(String expression) {
             if (!expression.trim().startsWith("where")) {
                 expression = "where ".concat(expression);
@@ -168,7 +442,7 @@ public class SqlGenerator {
         }
 
         public SqlGenerator build() {
-            return new SqlGenerator(tableName, whereCondition, limitStr, fieldStr, ignoreNullField, finalSql);
+            return new SqlGenerator(tableName, whereCondition, limitStr, fieldStr, ignoreNullField, finalSql, params.toArray());
         }
     }
 
@@ -178,6 +452,7 @@ public class SqlGenerator {
         private String limitStr;
         private String fieldStr;
         private boolean ignoreNullField;
+        private List<Object> params = new ArrayList<>();
         private StringBuilder finalSql = new StringBuilder();
 
         public SelectBuilder select(String tableName) {
@@ -199,14 +474,54 @@ public class SqlGenerator {
         }
 
 
+        public SelectBuilder orderBy(String... fields) {
+            finalSql.append(" order by ").append(String.join(",", fields));
+            return this;
+        }
+
         public SelectBuilder limit(int size) {
-            this.limitStr = String.format(" limit %s", size);
+            this.limitStr = " limit ?";
+            this.params.add(size);
             finalSql.append(this.limitStr);
             return this;
         }
 
         public SelectBuilder limit(int offset, int size) {
-            this.limitStr = String.format(" limit %s,%s", String.valueOf(offset), String.valueOf(size));
+            this.limitStr = " limit ?,?";
+            this.params.add(offset);
+            this.params.add(size);
+            finalSql.append(limitStr);
+            return this;
+        }
+
+        /**
+         * PostgreSQL: limit ? offset ?
+         */
+        public SelectBuilder limitOffset(int size, int offset) {
+            this.limitStr = " limit ? offset ?";
+            this.params.add(size);
+            this.params.add(offset);
+            finalSql.append(limitStr);
+            return this;
+        }
+
+        /**
+         * Oracle 12c+: fetch first ? rows only
+         */
+        public SelectBuilder fetchFirst(int size) {
+            this.limitStr = " fetch first ? rows only";
+            this.params.add(size);
+            finalSql.append(limitStr);
+            return this;
+        }
+
+        /**
+         * Oracle 12c+: offset ? rows fetch next ? rows only
+         */
+        public SelectBuilder offsetFetch(int offset, int size) {
+            this.limitStr = " offset ? rows fetch next ? rows only";
+            this.params.add(offset);
+            this.params.add(size);
             finalSql.append(limitStr);
             return this;
         }
@@ -215,7 +530,31 @@ public class SqlGenerator {
             return where(primaryKey + "=?");
         }
 
+        /**
+         * where field in (?,?,?)
+         */
+        public SelectBuilder in(String field, Object... ids) {
+            StringBuilder expression = new StringBuilder(field).append(" in (");
+            for (int i = 0; i < ids.length; i++) {
+                expression.append(i == 0 ? "?" : ",?");
+            }
+            expression.append(')');
+            this.params.addAll(Arrays.asList(ids));
+            return where(expression.toString());
+        }
+
+        /**
+         * where pk>? , 用于按主键续读(keyset分页)
+         */
+        public SelectBuilder wherePKAfter(String primaryKey, Object lastKey) {
+            this.params.add(lastKey);
+            return where(primaryKey + ">?");
+        }
+
         public SelectBuilder where(String expression) {
+            if (null == expression || expression.trim().isEmpty()) {
+                return this;
+            }
             if (!expression.trim().startsWith("where")) {
                 expression = "where ".concat(expression);
             }
@@ -225,7 +564,7 @@ public class SqlGenerator {
         }
 
         public SqlGenerator build() {
-            return new SqlGenerator(tableName, whereCondition, limitStr, fieldStr, ignoreNullField, finalSql);
+            return new SqlGenerator(tableName, whereCondition, limitStr, fieldStr, ignoreNullField, finalSql, params.toArray());
         }
     }
 
@@ -238,31 +577,39 @@ public class SqlGenerator {
         SqlGenerator.selectBuilder().select("t_uc_sys_user").where("id=1").build().generator();
         // selectList: select * from table where id > 10 and name like '%gary%';
         SqlGenerator.selectBuilder().select("t_uc_sys_user").where("id=>10 and name like '%gary%'").build().generator();
-        // selectPage: select * from table where id > 10 limit 10,20;
+        // selectPage: select * from table where id > 10 limit ?,? -> [10,20];
         SqlGenerator.selectBuilder().select("t_uc_sys_user").where("id=>10").limit(10, 20).build().generator();
+        // keysetPage: select * from table where id>? order by id limit ? -> [lastId,20];
+        SqlGenerator.selectBuilder().select("t_uc_sys_user").wherePKAfter("id", 100).orderBy("id").limit(20).build().generator();
         // count: select count(1) from table;
         SqlGenerator.selectBuilder().selectCount("t_uc_sys_user").build().generator();
+        // selectByIds: select * from table where id in (?,?,?) -> [1,2,3]
+        SqlGenerator.selectBuilder().select("t_uc_sys_user").in("id", 1, 2, 3).build().generator();
 
 
         // INSERT/UPDATE/DELETE
         // entity: user :{id='1',name='gary.hu',create_time='2019-12-14 10:00:00'}
-        // insert: insert into table (field1,field2,field3) values ('val1','val2','val3');
-        SqlGenerator.insertBuilder().insert("t_uc_sys_user").fields("field1", "field2", "field3").values("val1,val2,val3").build().generator();
-        // update: update table set field1='val1',field2='val2', field3='val3' where id = 1
+        // insert: insert into table (field1,field2,field3) values (?,?,?) -> ['val1','val2','val3'];
+        SqlGenerator.insertBuilder().insert("t_uc_sys_user").fields("field1", "field2", "field3").values("val1", "val2", "val3").build().generator();
+        // update: update table set field1=?,field2=?,field3=? where id=? -> ['val1','val2','val3',1]
         Map<String, String> map = new HashMap<>();
         map.put("field1", "val1");
         map.put("field2", "val2");
         map.put("field3", "val3");
-        SqlGenerator.updateBuilder().update("t_uc_sys_user").setFields(map,"id").wherePK("id").build().generator();
-        // delete: delete from table where id = 1
-        SqlGenerator.deleteBuilder().delete("t_uc_sys_user").where("id=1").build().generator();
+        SqlGenerator.updateBuilder().update("t_uc_sys_user").setFields(map, "id").wherePK("id", 1).build().generator();
+        // delete: delete from table where id=? -> [1]
+        SqlGenerator.deleteBuilder().delete("t_uc_sys_user").wherePK("id").build().generator();
 
 
         //BATCH
-        // batchInsert: insert into table (field1,field2,field3) values ('va1','val2','val3'),('val4','val5','val6')
-        SqlGenerator.insertBuilder().insert("t_uc_sys_user").fields("field1", "field2", "field3").values("val1,val2,val3", "val4,val5,val6").build().generator();
+        // batchInsert: insert into table (field1,field2,field3) values (?,?,?),(?,?,?)
+        SqlGenerator.insertBuilder().insert("t_uc_sys_user").fields("field1", "field2", "field3").values("val1", "val2", "val3").values("val4", "val5", "val6").build().generator();
+        // batchUpsert: insert into table (id,field1) values (?,?),(?,?) on duplicate key update field1=values(field1)
+        SqlGenerator.upsertTemplate("t_uc_sys_user", 2, "id", "id", "field1");
         // batchUpdate: update
-        // batchdelete: delete from table where id in(1,2,3)
-        SqlGenerator.deleteBuilder().delete("t_uc_sys_user").in("1", "2", "3").build().generator();
+        // batchdelete: delete from table where id in (?,?,?) -> [1,2,3]
+        SqlGenerator.deleteBuilder().delete("t_uc_sys_user").in("id", 1, 2, 3).build().generator();
+        // template: 相同表与字段结构只生成一次
+        SqlGenerator.insertTemplate("t_uc_sys_user", "field1", "field2", "field3");
     }
 }
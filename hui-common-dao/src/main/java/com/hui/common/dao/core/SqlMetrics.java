@@ -0,0 +1,21 @@
+package com.hui.common.dao.core;
+
+/**
+ * <code>SqlMetrics</code>
+ * <desc>
+ * 描述： SQL执行指标接收器, 每条语句执行结束后回调, sql为带占位符的语句模板;
+ * 在执行线程上同步调用, 实现需线程安全且足够轻量
+ * <desc/>
+ * Creation Time: 2019/12/26 21:05.
+ *
+ * @author Gary.Hu
+ */
+@FunctionalInterface
+public interface SqlMetrics {
+
+    /**
+     * @param elapsedNanos 执行耗时(纳秒), 包含取连接与处理结果集
+     * @param rows         查询返回或写入影响的行数, 失败时为0
+     */
+    void record(String sql, long elapsedNanos, long rows, boolean error);
+}
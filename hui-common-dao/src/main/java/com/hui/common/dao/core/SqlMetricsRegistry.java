@@ -0,0 +1,180 @@
+package com.hui.common.dao.core;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <code>SqlMetricsRegistry</code>
+ * <desc>
+ * 描述： 进程内指标注册表, 按语句模板统计次数、错误数、行数及耗时分布. 记录路径无锁,
+ * 耗时落入对数分桶的直方图(每个2的幂区间再分4桶); 模板数超过上限后的新语句合并计入 {@link #OTHER}
+ * <desc/>
+ * Creation Time: 2019/12/26 21:30.
+ *
+ * @author Gary.Hu
+ */
+public class SqlMetricsRegistry implements SqlMetrics, SqlMetricsRegistryMXBean {
+
+    public static final String OTHER = "<other>";
+    public static final int DEFAULT_MAX_TEMPLATES = 1000;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final int maxTemplates;
+    private ObjectName objectName;
+
+    public SqlMetricsRegistry() {
+        this(DEFAULT_MAX_TEMPLATES);
+    }
+
+    public SqlMetricsRegistry(int maxTemplates) {
+        this.maxTemplates = maxTemplates;
+    }
+
+    @Override
+    public void record(String sql, long elapsedNanos, long rows, boolean error) {
+        Timer timer = timers.get(sql);
+        if (null == timer) {
+            timer = timers.size() < maxTemplates
+                    ? timers.computeIfAbsent(sql, key -> new Timer())
+                    : timers.computeIfAbsent(OTHER, key -> new Timer());
+        }
+        timer.record(elapsedNanos, rows, error);
+    }
+
+    /**
+     * 单个语句模板的指标, 未执行过时为null
+     */
+    public SqlStats stats(String sql) {
+        Timer timer = timers.get(sql);
+        return null == timer ? null : timer.snapshot(sql);
+    }
+
+    @Override
+    public List<SqlStats> getStatements() {
+        List<SqlStats> statements = new ArrayList<>(timers.size());
+        timers.forEach((sql, timer) -> statements.add(timer.snapshot(sql)));
+        statements.sort(Comparator.comparingDouble(SqlStats::getTotalMillis).reversed());
+        return statements;
+    }
+
+    @Override
+    public long getTotalCount() {
+        return timers.values().stream().mapToLong(timer -> timer.count.sum()).sum();
+    }
+
+    @Override
+    public long getTotalErrors() {
+        return timers.values().stream().mapToLong(timer -> timer.errors.sum()).sum();
+    }
+
+    @Override
+    public void reset() {
+        timers.clear();
+    }
+
+    /**
+     * 注册到平台MBeanServer, ObjectName: com.hui.common.dao:type=SqlMetrics,name={name}
+     */
+    public synchronized ObjectName registerJmx(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("com.hui.common.dao:type=SqlMetrics,name=" + ObjectName.quote(name));
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+        server.registerMBean(this, objectName);
+        this.objectName = objectName;
+        return objectName;
+    }
+
+    public synchronized void unregisterJmx() throws JMException {
+        if (null != objectName) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            objectName = null;
+        }
+    }
+
+    private static final class Timer {
+        /**
+         * 微秒值0~3各占一桶, 之后每个2的幂区间分4桶, 覆盖到Long.MAX_VALUE
+         */
+        private static final int BUCKETS = 4 + 61 * 4;
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        void record(long elapsedNanos, long rowCount, boolean error) {
+            count.increment();
+            if (error) {
+                errors.increment();
+            }
+            rows.add(rowCount);
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+            buckets.incrementAndGet(bucket(TimeUnit.NANOSECONDS.toMicros(elapsedNanos)));
+        }
+
+        static int bucket(long micros) {
+            if (micros < 4) {
+                return (int) Math.max(0, micros);
+            }
+            int log = 63 - Long.numberOfLeadingZeros(micros);
+            int sub = (int) (micros >>> (log - 2)) & 3;
+            return 4 + (log - 2) * 4 + sub;
+        }
+
+        /**
+         * 桶的上界(微秒, 不含)
+         */
+        static long upperMicros(int bucket) {
+            if (bucket < 4) {
+                return bucket + 1;
+            }
+            int k = bucket - 4;
+            if ((k >>> 2) >= 60) {
+                return Long.MAX_VALUE;
+            }
+            return (5L + (k & 3)) << (k >>> 2);
+        }
+
+        double percentileMillis(double percentile, long total, long max) {
+            if (total == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= target) {
+                    long upper = upperMicros(i);
+                    long upperNanos = upper > Long.MAX_VALUE / 1000 ? Long.MAX_VALUE : upper * 1000;
+                    return Math.min(upperNanos, max) / 1e6;
+                }
+            }
+            return max / 1e6;
+        }
+
+        SqlStats snapshot(String sql) {
+            long total = count.sum();
+            long nanos = totalNanos.sum();
+            long max = maxNanos.get();
+            return new SqlStats(sql, total, errors.sum(), rows.sum(), nanos / 1e6,
+                    total == 0 ? 0 : nanos / 1e6 / total,
+                    percentileMillis(0.5, total, max), percentileMillis(0.99, total, max), max / 1e6);
+        }
+    }
+}
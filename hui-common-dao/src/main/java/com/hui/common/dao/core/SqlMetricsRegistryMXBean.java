@@ -0,0 +1,26 @@
+package com.hui.common.dao.core;
+
+import java.util.List;
+
+/**
+ * <code>SqlMetricsRegistryMXBean</code>
+ * <desc>
+ * 描述： SqlMetricsRegistry的JMX视图
+ * <desc/>
+ * Creation Time: 2019/12/26 21:40.
+ *
+ * @author Gary.Hu
+ */
+public interface SqlMetricsRegistryMXBean {
+
+    /**
+     * 按累计耗时倒序的各语句模板指标
+     */
+    List<SqlStats> getStatements();
+
+    long getTotalCount();
+
+    long getTotalErrors();
+
+    void reset();
+}
@@ -0,0 +1,38 @@
+package com.hui.common.dao.core;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * <code>SqlStats</code>
+ * <desc>
+ * 描述： 单个语句模板的指标快照, 耗时单位毫秒; 分位数为直方图桶上界, 相对误差约25%以内
+ * <desc/>
+ * Creation Time: 2019/12/26 21:20.
+ *
+ * @author Gary.Hu
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class SqlStats {
+
+    private String sql;
+
+    private long count;
+
+    private long errors;
+
+    private long rows;
+
+    private double totalMillis;
+
+    private double meanMillis;
+
+    private double p50Millis;
+
+    private double p99Millis;
+
+    private double maxMillis;
+}
@@ -0,0 +1,113 @@
+package com.hui.common.dao.core;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * <code>TsvInputStream</code>
+ * <desc>
+ * 描述： 将行迭代器按需编码为LOAD DATA默认格式(制表符分隔, 换行结尾, 反斜杠转义, null写作\N)的UTF-8字节流,
+ * 每次只在内存中保留一行, 不生成临时文件
+ * <desc/>
+ * Creation Time: 2019/12/24 20:35.
+ *
+ * @author Gary.Hu
+ */
+public class TsvInputStream extends InputStream {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final Iterator<? extends Map<String, String>> rows;
+    private final String[] fields;
+    private final StringBuilder line = new StringBuilder();
+    private byte[] buffer = EMPTY;
+    private int position;
+    private long rowCount;
+
+    public TsvInputStream(Iterator<? extends Map<String, String>> rows, String... fields) {
+        this.rows = rows;
+        this.fields = fields;
+    }
+
+    @Override
+    public int read() {
+        if (!fill()) {
+            return -1;
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        int read = 0;
+        while (read < len && fill()) {
+            int size = Math.min(len - read, buffer.length - position);
+            System.arraycopy(buffer, position, b, off + read, size);
+            position += size;
+            read += size;
+        }
+        return read == 0 ? -1 : read;
+    }
+
+    /**
+     * 已编码的行数
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    private boolean fill() {
+        while (position >= buffer.length) {
+            if (!rows.hasNext()) {
+                return false;
+            }
+            encode(rows.next());
+        }
+        return true;
+    }
+
+    private void encode(Map<String, String> row) {
+        line.setLength(0);
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                line.append('\t');
+            }
+            String value = row.get(fields[i]);
+            if (null == value) {
+                line.append("\\N");
+                continue;
+            }
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                switch (c) {
+                    case '\\':
+                        line.append("\\\\");
+                        break;
+                    case '\t':
+                        line.append("\\t");
+                        break;
+                    case '\n':
+                        line.append("\\n");
+                        break;
+                    case '\r':
+                        line.append("\\r");
+                        break;
+                    case '\0':
+                        line.append("\\0");
+                        break;
+                    default:
+                        line.append(c);
+                }
+            }
+        }
+        line.append('\n');
+        buffer = line.toString().getBytes(StandardCharsets.UTF_8);
+        position = 0;
+        rowCount++;
+    }
+}
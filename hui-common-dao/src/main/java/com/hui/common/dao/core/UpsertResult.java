@@ -0,0 +1,74 @@
+package com.hui.common.dao.core;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * <code>UpsertResult</code>
+ * <desc>
+ * 描述： upsert统计. MySQL在useAffectedRows=true时对每行返回的影响行数: 1新增, 2更新, 0已存在且数据未变化;
+ * 驱动默认(useAffectedRows=false)返回匹配行数, 未变化的行也返回1, 此时只有2能确定为更新, 1计入unknown.
+ * PostgreSQL通过returning直接得到每行是否新增; 拿不到单行结果时(多行VALUES、Oracle MERGE)计入unknown
+ * <desc/>
+ * Creation Time: 2019/12/23 21:10.
+ *
+ * @author Gary.Hu
+ */
+@Getter
+@ToString
+public class UpsertResult {
+
+    private int inserted;
+
+    private int updated;
+
+    private int unchanged;
+
+    private int unknown;
+
+    /**
+     * 按单行影响行数归类
+     */
+    void add(int count) {
+        if (count == 1) {
+            inserted++;
+        } else if (count == 2) {
+            updated++;
+        } else if (count == 0) {
+            unchanged++;
+        } else {
+            unknown++;
+        }
+    }
+
+    /**
+     * 按单行匹配行数(CLIENT_FOUND_ROWS)归类, 新增与未变化都返回1, 无法区分
+     */
+    void addFoundRows(int count) {
+        if (count == 2) {
+            updated++;
+        } else {
+            unknown++;
+        }
+    }
+
+    void addInserted(int rows) {
+        inserted += rows;
+    }
+
+    void addUpdated(int rows) {
+        updated += rows;
+    }
+
+    void addUnchanged(int rows) {
+        unchanged += rows;
+    }
+
+    void addUnknown(int rows) {
+        unknown += rows;
+    }
+
+    public int total() {
+        return inserted + updated + unchanged + unknown;
+    }
+}
@@ -1,6 +1,9 @@
 package com.hui.common.dao.utils;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
 
 /**
  * <code>TestBean</code>
@@ -11,7 +14,12 @@ import lombok.Builder;
  *
  * @author Gary.Hu
  */
+@Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class TestBean {
-    private String name;
+    private Long userId;
+    private String userName;
+    private String email;
 }
@@ -1,5 +1,6 @@
 package com.hui.common.dao.utils;
 
+import com.hui.common.dao.core.BaseDao;
 import com.hui.common.dao.core.BaseMapper;
 
 /**
@@ -11,6 +12,9 @@ import com.hui.common.dao.core.BaseMapper;
  *
  * @author Gary.Hu
  */
-public class TestMapper extends BaseMapper {
+public class TestMapper extends BaseMapper<TestBean, Long> {
 
+    public TestMapper(BaseDao baseDao) {
+        super(baseDao, TestBean.class);
+    }
 }
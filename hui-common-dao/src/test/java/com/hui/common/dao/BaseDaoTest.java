@@ -1,15 +1,58 @@
 package com.hui.common.dao;
 
+import com.alibaba.druid.pool.DruidDataSource;
+import com.hui.common.dao.core.AsyncBaseDao;
 import com.hui.common.dao.core.BaseDao;
 import com.hui.common.dao.core.BaseDaoFactory;
+import com.hui.common.dao.core.BaseDaoStrategy;
+import com.hui.common.dao.core.DaoExecutor;
+import com.hui.common.dao.core.DataSourceConfig;
+import com.hui.common.dao.core.LruDaoCache;
+import com.hui.common.dao.core.MySqlDao;
+import com.hui.common.dao.core.OracleDao;
+import com.hui.common.dao.core.PageResult;
+import com.hui.common.dao.core.PostgreSqlDao;
+import com.hui.common.dao.core.QueryBatch;
+import com.hui.common.dao.core.RoutingRunnerDao;
 import com.hui.common.dao.core.RunnerDao;
 import com.hui.common.dao.core.SqlGenerator;
+import com.hui.common.dao.core.SqlMetricsRegistry;
+import com.hui.common.dao.core.SqlStats;
+import com.hui.common.dao.core.TsvInputStream;
+import com.hui.common.dao.core.UpsertResult;
+import com.hui.common.dao.utils.TestBean;
+import com.hui.common.dao.utils.TestMapper;
+import org.junit.Assert;
 import org.junit.Test;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.SQLDataException;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <code>CommonDaoTest</code>
@@ -74,13 +117,761 @@ public class BaseDaoTest {
 
 
     @Test
-    public void baseMapperTest(){
+    public void batchInsertTest() throws SQLException {
+        MySqlDao<Long> baseDao = (MySqlDao<Long>) BaseDaoFactory.createBaseDao(h2RunnerDao("batch_insert"), "t_user", "user_id");
+        baseDao.setBatchSize(2);
+        List<Map<String, String>> maps = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Map<String, String> dataMap = new LinkedHashMap<>();
+            dataMap.put("user_name", "user" + i);
+            if (i % 2 == 0) {
+                dataMap.put("email", "user" + i + "@hui.com");
+            }
+            maps.add(dataMap);
+        }
+        List<Serializable> keys = baseDao.batchInsert(maps);
+        Assert.assertEquals(5, keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            Assert.assertEquals("user" + i, baseDao.selectOne(keys.get(i)).get("user_name"));
+        }
 
+        baseDao.setRewriteBatchedStatements(true);
+        keys = baseDao.batchInsert(maps);
+        Assert.assertEquals(10, baseDao.count());
+        for (int i = 0; i < keys.size(); i++) {
+            Assert.assertEquals("user" + i, baseDao.selectOne(keys.get(i)).get("user_name"));
+        }
+    }
+
+    @Test
+    public void selectByIdsTest() throws SQLException {
+        MySqlDao<Long> baseDao = (MySqlDao<Long>) BaseDaoFactory.createBaseDao(h2RunnerDao("select_by_ids"), "t_user", "user_id");
+        baseDao.setInListSize(2);
+        List<Map<String, String>> maps = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Map<String, String> dataMap = new LinkedHashMap<>();
+            dataMap.put("user_name", "user" + i);
+            maps.add(dataMap);
+        }
+        List<Serializable> keys = baseDao.batchInsert(maps);
+        List<Serializable> ids = Arrays.asList(keys.get(5), 999L, keys.get(0), keys.get(3), keys.get(5), keys.get(6), keys.get(1));
+
+        List<Map<String, String>> rows = baseDao.selectByIds(ids);
+        Assert.assertEquals(5, rows.size());
+        Assert.assertEquals("user5", rows.get(0).get("user_name"));
+        Assert.assertEquals("user0", rows.get(1).get("user_name"));
+        Assert.assertEquals("user1", rows.get(4).get("user_name"));
+
+        DaoExecutor executor = DaoExecutor.create(2, 1000);
+        baseDao.setChunkExecutor(executor);
+        baseDao.setCache(new LruDaoCache<>(16, 1, TimeUnit.MINUTES));
+        Map<Serializable, Map<String, String>> byId = baseDao.selectMapByIds(ids);
+        Assert.assertEquals(Arrays.asList(keys.get(5), keys.get(0), keys.get(3), keys.get(6), keys.get(1)), new ArrayList<>(byId.keySet()));
+        Assert.assertEquals("user3", byId.get(keys.get(3)).get("user_name"));
+        Assert.assertEquals(5, ((LruDaoCache) baseDao.getCache()).size());
+        Assert.assertEquals(byId, baseDao.selectMapByIds(ids));
+        baseDao.setChunkExecutor(null);
+        executor.shutdown();
+
+        Assert.assertEquals(5, baseDao.deleteByIds(ids));
+        Assert.assertEquals(2, baseDao.count());
+        Assert.assertTrue(baseDao.selectByIds(ids).isEmpty());
+    }
+
+    @Test
+    public void batchUpsertTest() throws SQLException {
+        MySqlDao<Long> baseDao = (MySqlDao<Long>) BaseDaoFactory.createBaseDao(h2RunnerDao("batch_upsert"), "t_user", "user_id");
+        baseDao.setBatchSize(2);
+        baseDao.setCache(new LruDaoCache<>(16, 1, TimeUnit.MINUTES));
+        List<Map<String, String>> maps = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            Map<String, String> dataMap = new LinkedHashMap<>();
+            dataMap.put("user_id", String.valueOf(i));
+            dataMap.put("user_name", "user" + i);
+            maps.add(dataMap);
+        }
+        // 非MySQL驱动无法确认useAffectedRows, 新增与未变化都返回1, 计入unknown
+        UpsertResult result = baseDao.batchUpsert(maps);
+        Assert.assertFalse(baseDao.getAffectedRows());
+        Assert.assertEquals(0, result.getInserted());
+        Assert.assertEquals(3, result.getUnknown());
+        Assert.assertEquals("user2", baseDao.selectOne(2L).get("user_name"));
+
+        baseDao.setAffectedRows(true);
+
+        maps.get(1).put("user_name", "gary");
+        Map<String, String> newRow = new LinkedHashMap<>();
+        newRow.put("user_id", "4");
+        newRow.put("user_name", "user4");
+        maps.add(newRow);
+        result = baseDao.batchUpsert(maps);
+        Assert.assertEquals(1, result.getInserted());
+        Assert.assertEquals(4, result.total());
+        Assert.assertEquals(4, baseDao.count());
+        Assert.assertEquals("gary", baseDao.selectOne(2L).get("user_name"));
+
+        baseDao.setRewriteBatchedStatements(true);
+        maps.get(2).put("user_name", "hu");
+        result = baseDao.batchUpsert(maps);
+        Assert.assertEquals(4, result.getUnknown());
+        Assert.assertEquals("hu", baseDao.selectOne(3L).get("user_name"));
+        Assert.assertEquals(4, baseDao.count());
+    }
+
+    @Test
+    public void loadDataTest() throws Exception {
+        MySqlDao<Long> baseDao = (MySqlDao<Long>) BaseDaoFactory.createBaseDao(h2RunnerDao("load_data"), "t_user", "user_id");
+        baseDao.setBatchSize(2);
+        List<Map<String, String>> maps = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Map<String, String> dataMap = new LinkedHashMap<>();
+            dataMap.put("user_name", "user" + i);
+            dataMap.put("email", i % 2 == 0 ? null : "a\tb\n" + i);
+            maps.add(dataMap);
+        }
+        Assert.assertEquals(5, baseDao.loadData(maps));
+        Assert.assertEquals(5, baseDao.count());
+
+        File csv = File.createTempFile("load_data", ".csv");
+        csv.deleteOnExit();
+        Files.write(csv.toPath(), "csv1,c1@hui.com\ncsv2,c2@hui.com\ncsv3,c3@hui.com\n".getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals(3, baseDao.loadCsv(csv, "user_name", "email"));
+        Assert.assertEquals(8, baseDao.count());
+
+        TsvInputStream tsv = new TsvInputStream(maps.subList(0, 2).iterator(), "user_name", "email");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[7];
+        for (int n; (n = tsv.read(buffer, 0, buffer.length)) > 0; ) {
+            out.write(buffer, 0, n);
+        }
+        Assert.assertEquals("user0\t\\N\nuser1\ta\\tb\\n1\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+        Assert.assertEquals(2, tsv.getRowCount());
+    }
+
+    @Test
+    public void loadDataFallbackTest() throws Exception {
+        // 检测通过但服务端拒绝LOAD DATA LOCAL时, 退化为批量插入且不再尝试
+        AtomicInteger attempts = new AtomicInteger();
+        RunnerDao runnerDao = new RunnerDao(h2UserDataSource("load_data_fallback")) {
+            @Override
+            protected boolean supportsLocalInfile() {
+                return true;
+            }
+
+            @Override
+            protected long loadLocalInfile(String sql, InputStream input) throws SQLException {
+                attempts.incrementAndGet();
+                throw new SQLException("Loading local data is disabled; this must be enabled on both the client and server sides", "42000", 3948);
+            }
+        };
+        MySqlDao<Long> baseDao = (MySqlDao<Long>) BaseDaoFactory.createBaseDao(runnerDao, "t_user", "user_id");
+        baseDao.setBatchSize(2);
+        List<Map<String, String>> maps = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Map<String, String> dataMap = new LinkedHashMap<>();
+            dataMap.put("user_name", "user" + i);
+            dataMap.put("email", null);
+            maps.add(dataMap);
+        }
+        Assert.assertEquals(3, baseDao.loadData(maps));
+        Assert.assertEquals(3, baseDao.loadData(maps));
+        Assert.assertEquals(6, baseDao.count());
+        Assert.assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void batchInsertShortKeysTest() throws SQLException {
+        // 驱动返回的主键少于行数: 携带主键的行取自身主键, 否则报错而不是返回null
+        RunnerDao runnerDao = new RunnerDao(h2UserDataSource("short_keys")) {
+            @Override
+            protected List batchInsertReturnKeys(String sql, Object[][] params, String... keyColumns) throws SQLException {
+                super.batchInsertReturnKeys(sql, params, keyColumns);
+                return Collections.emptyList();
+            }
+        };
+        MySqlDao<Long> baseDao = (MySqlDao<Long>) BaseDaoFactory.createBaseDao(runnerDao, "t_user", "user_id");
+        List<Map<String, String>> maps = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Map<String, String> dataMap = new LinkedHashMap<>();
+            dataMap.put("user_id", String.valueOf(100 + i));
+            dataMap.put("user_name", "user" + i);
+            maps.add(dataMap);
+        }
+        Assert.assertEquals(Arrays.asList("100", "101"), baseDao.batchInsert(maps));
+        try {
+            baseDao.batchInsert(Collections.singletonList(Collections.singletonMap("user_name", "user2")));
+            Assert.fail();
+        } catch (SQLDataException e) {
+            Assert.assertEquals("返回的主键数0少于插入行数1", e.getMessage());
+        }
+    }
+
+    @Test
+    public void insertReturnKeyTest() throws SQLException {
+        DruidDataSource dataSource = (DruidDataSource) h2UserDataSource("insert_key");
+        BaseDao<Long> baseDao = BaseDaoFactory.createBaseDao(new RunnerDao(dataSource), "t_user", "user_id");
+        for (int i = 1; i <= 3; i++) {
+            Map<String, String> dataMap = new HashMap<>();
+            dataMap.put("user_name", "user" + i);
+            Assert.assertEquals(i, ((Number) baseDao.insert(dataMap)).longValue());
+        }
+        // 主键结果集与连接均已归还
+        Assert.assertEquals(0, dataSource.getActiveCount());
+
+        TestBean bean = new TestBean();
+        bean.setUserName("gary");
+        new TestMapper(baseDao).insert(bean);
+        Assert.assertEquals(Long.valueOf(4), bean.getUserId());
+        Assert.assertEquals(0, dataSource.getActiveCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void transactionTest() throws SQLException {
+        DruidDataSource dataSource = (DruidDataSource) h2UserDataSource("transaction");
+        BaseDao<Long> userDao = BaseDaoFactory.createBaseDao(new RunnerDao(dataSource), "t_user", "user_id");
+        BaseDao<Long> otherDao = BaseDaoFactory.createBaseDao(new RunnerDao(dataSource), "t_user", "user_id");
+        userDao.setCache(new LruDaoCache<>(100, 10, TimeUnit.MINUTES));
+        Map<String, String> dataMap = new HashMap<>();
+        dataMap.put("user_name", "gary");
+        userDao.batchInsert(Arrays.asList(dataMap));
+        Assert.assertEquals("gary", userDao.selectOne(1L).get("user_name"));
+
+        // 不同BaseDao共用事务连接, 异常时全部回滚, 缓存失效
+        try {
+            userDao.runInTransaction(transaction -> {
+                Map<String, String> update = new HashMap<>();
+                update.put("user_id", "1");
+                update.put("user_name", "hu");
+                userDao.update(update);
+                otherDao.batchInsert(Arrays.asList(dataMap));
+                Assert.assertEquals("hu", userDao.selectOne(1L).get("user_name"));
+                Assert.assertEquals(2, otherDao.count());
+                Assert.assertEquals(1, dataSource.getActiveCount());
+                throw new IllegalStateException("rollback");
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("rollback", e.getMessage());
+        }
+        Assert.assertEquals(1, userDao.count());
+        Assert.assertEquals("gary", userDao.selectOne(1L).get("user_name"));
+        Assert.assertEquals(0, dataSource.getActiveCount());
+
+        // 嵌套调用加入外层事务, 正常返回时提交
+        int updated = otherDao.runInTransaction(transaction -> userDao.runInTransaction(inner -> {
+            Assert.assertSame(transaction, inner);
+            return userDao.delete(1L);
+        }));
+        Assert.assertEquals(1, updated);
+        Assert.assertEquals(0, userDao.count());
+
+        // 每2行提交一次, 回滚只撤销最后一次提交之后的写入
+        userDao.setBatchSize(2);
+        List<Map<String, String>> maps = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Map<String, String> row = new HashMap<>();
+            row.put("user_name", "user" + i);
+            maps.add(row);
+        }
+        long[] committed = new long[1];
+        try {
+            userDao.runInTransaction(2, transaction -> {
+                userDao.loadData(maps);
+                committed[0] = transaction.getCommittedRows();
+                Assert.assertEquals(1, transaction.getPendingRows());
+                throw new SQLException("rollback");
+            });
+            Assert.fail();
+        } catch (SQLException e) {
+            Assert.assertEquals("rollback", e.getMessage());
+        }
+        Assert.assertEquals(4, committed[0]);
+        Assert.assertEquals(4, userDao.count());
+    }
+
+    @Test
+    public void dialectDaoTest() throws SQLException {
+        Assert.assertEquals(BaseDaoStrategy.POSTGRESQL, BaseDaoStrategy.fromUrl("jdbc:postgresql://127.0.0.1:5432/hui_cloud_uc"));
+        Assert.assertEquals(BaseDaoStrategy.ORACLE, BaseDaoStrategy.fromUrl("jdbc:oracle:thin:@127.0.0.1:1521/hui_cloud_uc"));
+        Assert.assertEquals(BaseDaoStrategy.MYSQL, BaseDaoStrategy.fromUrl("jdbc:mysql://127.0.0.1/hui_cloud_uc"));
+
+        BaseDao<Long> pgDao = BaseDaoFactory.createBaseDao(new RunnerDao(h2UserDataSource("dialect_pg", "PostgreSQL")), "t_user", "user_id");
+        Assert.assertTrue(pgDao instanceof PostgreSqlDao);
+        assertDialectDao(pgDao);
+
+        // 不设DATABASE_TO_LOWER, 与真实Oracle一样返回大写列名
+        DataSource oracleDataSource = h2UserDataSource("dialect_oracle", "Oracle", false);
+        Assert.assertEquals("select 1 from dual", ((DruidDataSource) oracleDataSource).getValidationQuery());
+        Assert.assertEquals("select 1", ((DruidDataSource) h2UserDataSource("dialect_mysql")).getValidationQuery());
+        BaseDao<Long> oracleDao = BaseDaoFactory.createBaseDao(new RunnerDao(oracleDataSource), "t_user", "user_id");
+        Assert.assertTrue(oracleDao instanceof OracleDao);
+        assertDialectDao(oracleDao);
+        Map<String, String> row = oracleDao.selectAll().get(0);
+        Assert.assertTrue(row.containsKey("USER_NAME"));
+        Assert.assertEquals(row.get("USER_NAME"), row.get("user_name"));
+        // 查询-修改-更新: 大写的主键列不进入set列表
+        Map<String, String> selected = oracleDao.selectOne(1L);
+        selected.put("USER_NAME", "renamed");
+        Assert.assertEquals(1, oracleDao.update(selected));
+        Assert.assertEquals("renamed", oracleDao.selectOne(1L).get("user_name"));
+        // H2无法推断select列表中?的类型, merge只校验生成的语句
+        Assert.assertEquals("merge into t_user d using (select ? as user_id,? as user_name from dual) s on (d.user_id=s.user_id)"
+                        + " when matched then update set d.user_name=s.user_name"
+                        + " when not matched then insert (user_id,user_name) values (s.user_id,s.user_name);",
+                SqlGenerator.mergeTemplate("t_user", "user_id", "user_id", "user_name"));
+        Assert.assertEquals("insert into t_user (user_id,user_name) values (?,?) on conflict (user_id)"
+                        + " do update set user_name=excluded.user_name returning (xmax = 0) as inserted;",
+                SqlGenerator.pgUpsertTemplate("t_user", 1, "user_id", "user_id", "user_name"));
+    }
+
+    /**
+     * 插入5行后分页, 再退化导入2行
+     */
+    private void assertDialectDao(BaseDao<Long> baseDao) throws SQLException {
+        baseDao.setBatchSize(2);
+        List<Map<String, String>> maps = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Map<String, String> dataMap = new LinkedHashMap<>();
+            dataMap.put("user_name", "user" + i);
+            maps.add(dataMap);
+        }
+        List<Serializable> keys = baseDao.batchInsert(maps);
+        for (int i = 0; i < keys.size(); i++) {
+            Assert.assertEquals("user" + i, baseDao.selectOne(keys.get(i)).get("user_name"));
+        }
+        Map<Serializable, Map<String, String>> byIds = baseDao.selectMapByIds(Arrays.asList(keys.get(3), keys.get(1)));
+        Assert.assertEquals(Arrays.asList(keys.get(3), keys.get(1)), new ArrayList<>(byIds.keySet()));
+        Assert.assertEquals("user3", byIds.get(keys.get(3)).get("user_name"));
+        Assert.assertEquals(5, baseDao.count());
+        for (boolean keyset : new boolean[]{true, false}) {
+            baseDao.setKeysetPaging(keyset);
+            List<String> names = new ArrayList<>();
+            PageResult<Map<String, String>> page = baseDao.selectPage(null, 2);
+            page.getRows().forEach(row -> names.add(row.get("user_name")));
+            while (page.hasNext()) {
+                page = baseDao.selectPage(page.getNextToken(), 2);
+                page.getRows().forEach(row -> names.add(row.get("user_name")));
+            }
+            Assert.assertEquals(Arrays.asList("user0", "user1", "user2", "user3", "user4"), names);
+        }
+        Assert.assertEquals("user1", baseDao.selectPage(1, 2).get(0).get("user_name"));
+        Assert.assertEquals(2, baseDao.loadData(maps.subList(0, 2)));
+        Assert.assertEquals(7, baseDao.count());
+    }
+
+    @Test
+    public void sqlMetricsTest() throws Exception {
+        RunnerDao runnerDao = h2RunnerDao("sql_metrics");
+        SqlMetricsRegistry registry = new SqlMetricsRegistry();
+        runnerDao.setMetrics(registry);
+        runnerDao.setSlowQueryMillis(0);
+        MySqlDao<Long> baseDao = (MySqlDao<Long>) BaseDaoFactory.createBaseDao(runnerDao, "t_user", "user_id");
+        List<Map<String, String>> maps = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Map<String, String> dataMap = new LinkedHashMap<>();
+            dataMap.put("user_name", "user" + i);
+            maps.add(dataMap);
+        }
+        for (Serializable key : baseDao.batchInsert(maps)) {
+            baseDao.selectOne(key);
+        }
+        try {
+            baseDao.selectList("no_such_column=?", row -> {
+            }, 1);
+            Assert.fail("expect bad sql");
+        } catch (SQLException e) {
+            Assert.assertEquals(1, registry.getTotalErrors());
+        }
+        SqlStats select = registry.stats(SqlGenerator.selectTemplate("t_user", "user_id"));
+        Assert.assertEquals(3, select.getCount());
+        Assert.assertEquals(3, select.getRows());
+        Assert.assertTrue(select.getP99Millis() >= select.getP50Millis());
+        Assert.assertTrue(select.getMaxMillis() >= select.getP99Millis());
+        Assert.assertEquals(3, registry.stats(SqlGenerator.insertTemplate("t_user", "user_name")).getRows());
+
+        ObjectName objectName = registry.registerJmx("sql_metrics");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Assert.assertEquals(registry.getTotalCount(), server.getAttribute(objectName, "TotalCount"));
+        Assert.assertEquals(registry.getStatements().size(), ((CompositeData[]) server.getAttribute(objectName, "Statements")).length);
+        registry.unregisterJmx();
+        Assert.assertFalse(server.isRegistered(objectName));
+    }
+
+    @Test
+    public void batchUpdateTest() throws SQLException {
+        MySqlDao<Long> baseDao = (MySqlDao<Long>) BaseDaoFactory.createBaseDao(h2RunnerDao("batch_update"), "t_user", "user_id");
+        baseDao.setBatchSize(2);
+        List<Map<String, String>> maps = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Map<String, String> dataMap = new LinkedHashMap<>();
+            dataMap.put("user_name", "user" + i);
+            maps.add(dataMap);
+        }
+        List<Serializable> keys = baseDao.batchInsert(maps);
+
+        List<Map<String, String>> updates = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            Map<String, String> dataMap = new LinkedHashMap<>();
+            dataMap.put("user_id", String.valueOf(keys.get(i)));
+            dataMap.put("user_name", "updated" + i);
+            if (i % 2 == 0) {
+                dataMap.put("email", "user" + i + "@hui.com");
+            }
+            updates.add(dataMap);
+        }
+        Map<String, String> missing = new LinkedHashMap<>();
+        missing.put("user_id", "-1");
+        missing.put("user_name", "missing");
+        updates.add(missing);
+
+        List<Serializable> counts = baseDao.batchUpdate(updates);
+        Assert.assertEquals(Arrays.asList(1, 1, 1, 1, 1, 0), counts);
+        Assert.assertEquals(3, updates.get(0).size());
+        for (int i = 0; i < keys.size(); i++) {
+            Assert.assertEquals("updated" + i, baseDao.selectOne(keys.get(i)).get("user_name"));
+        }
+    }
+
+    @Test
+    public void streamQueryTest() throws SQLException {
+        MySqlDao<Long> baseDao = (MySqlDao<Long>) BaseDaoFactory.createBaseDao(h2RunnerDao("stream_query"), "t_user", "user_id");
+        List<Map<String, String>> maps = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Map<String, String> dataMap = new LinkedHashMap<>();
+            dataMap.put("user_name", "user" + i);
+            maps.add(dataMap);
+        }
+        baseDao.batchInsert(maps);
+
+        List<String> names = new ArrayList<>();
+        long rows = baseDao.selectAll(row -> names.add(row.get("user_name")));
+        Assert.assertEquals(5, rows);
+        Assert.assertEquals(Arrays.asList("user0", "user1", "user2", "user3", "user4"), names);
+
+        names.clear();
+        rows = baseDao.selectList("user_name in (?,?)", row -> names.add(row.get("user_name")), "user1", "user3");
+        Assert.assertEquals(2, rows);
+        Assert.assertEquals(Arrays.asList("user1", "user3"), names);
+        Assert.assertEquals(5, baseDao.selectList().size());
+    }
+
+    @Test
+    public void keysetPageTest() throws SQLException {
+        MySqlDao<Long> baseDao = (MySqlDao<Long>) BaseDaoFactory.createBaseDao(h2RunnerDao("keyset_page"), "t_user", "user_id");
+        List<Map<String, String>> maps = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Map<String, String> dataMap = new LinkedHashMap<>();
+            dataMap.put("user_name", "user" + i);
+            maps.add(dataMap);
+        }
+        baseDao.batchInsert(maps);
+
+        for (boolean keyset : new boolean[]{true, false}) {
+            baseDao.setKeysetPaging(keyset);
+            List<String> names = new ArrayList<>();
+            String token = null;
+            int pages = 0;
+            do {
+                PageResult<Map<String, String>> page = baseDao.selectPage(token, 2);
+                page.getRows().forEach(row -> names.add(row.get("user_name")));
+                token = page.getNextToken();
+                pages++;
+            } while (null != token);
+            Assert.assertEquals(3, pages);
+            Assert.assertEquals(Arrays.asList("user0", "user1", "user2", "user3", "user4"), names);
+        }
+    }
+
+    @Test
+    public void rowMapTest() throws SQLException {
+        MySqlDao<Long> baseDao = (MySqlDao<Long>) BaseDaoFactory.createBaseDao(h2RunnerDao("row_map"), "t_user", "user_id");
+        Map<String, String> dataMap = new LinkedHashMap<>();
+        dataMap.put("user_name", "gary");
+        Serializable id = baseDao.batchInsert(Arrays.asList(dataMap, dataMap)).get(0);
+
+        List<Map<String, String>> rows = baseDao.selectAll();
+        Map<String, String> row = rows.get(0);
+        Assert.assertEquals(Arrays.asList("user_id", "user_name", "email"), new ArrayList<>(row.keySet()));
+        Assert.assertEquals(String.valueOf(id), row.get("user_id"));
+        Assert.assertNull(row.get("email"));
+        Assert.assertTrue(row.containsKey("email"));
+        Assert.assertSame(row.keySet().iterator().next(), rows.get(1).keySet().iterator().next());
+
+        row.put("email", "gary@hui.com");
+        Assert.assertEquals(1, baseDao.update(row));
+        Assert.assertEquals("gary@hui.com", baseDao.selectOne(id).get("email"));
+        Assert.assertEquals(2, baseDao.count());
+    }
+
+    @Test
+    public void daoCacheTest() throws SQLException {
+        LruDaoCache<Map<String, String>> cache = new LruDaoCache<>(2, 10, TimeUnit.MINUTES);
+        BaseDao<Long> baseDao = BaseDaoFactory.createBaseDao(h2RunnerDao("dao_cache"), "t_user", "user_id", cache);
+        List<Map<String, String>> maps = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Map<String, String> dataMap = new LinkedHashMap<>();
+            dataMap.put("user_name", "user" + i);
+            maps.add(dataMap);
+        }
+        List<Serializable> keys = ((MySqlDao<Long>) baseDao).batchInsert(maps);
+
+        Map<String, String> row = baseDao.selectOne(keys.get(0));
+        row.put("user_name", "dirty");
+        Assert.assertEquals("user0", baseDao.selectOne(keys.get(0)).get("user_name"));
+        Assert.assertEquals(1, cache.getHitCount().get());
+        Assert.assertEquals(1, cache.getMissCount().get());
+
+        row.put("user_name", "updated");
+        baseDao.update(row);
+        Assert.assertEquals("updated", baseDao.selectOne(keys.get(0)).get("user_name"));
+
+        baseDao.selectOne(keys.get(1));
+        baseDao.selectOne(keys.get(2));
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(1, cache.getEvictionCount().get());
+
+        baseDao.delete(keys.get(2));
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(2, baseDao.count());
+    }
+
+    @Test
+    public void dataSourcePoolTest() throws SQLException {
+        DataSourceConfig config = DataSourceConfig.fromConfig("h2_pool");
+        Assert.assertEquals(4, config.getMaxActive());
+        Assert.assertEquals(3000L, config.getMaxWait());
+        DataSource dataSource = BaseDaoFactory.dataSourceInstance("h2_pool", config);
+        Assert.assertSame(dataSource, BaseDaoFactory.dataSourceInstance("h2_pool", config));
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("create table t_user (user_id bigint auto_increment primary key, "
+                    + "user_name varchar(64), email varchar(64))");
+        }
+
+        BaseDao<Long> userDao = BaseDaoFactory.createBaseDao(BaseDaoFactory.createRunnerDao("h2_pool"), "t_user", "user_id");
+        BaseDao<Long> otherDao = BaseDaoFactory.createBaseDao(BaseDaoFactory.createRunnerDao("h2_pool"), "t_user", "user_id");
+        Assert.assertEquals(0, userDao.count());
+        Assert.assertEquals(0, otherDao.count());
+
+        Map<String, Object> stats = BaseDaoFactory.poolStats().get("h2_pool");
+        Assert.assertEquals(4, stats.get("MaxActive"));
+        Assert.assertEquals(true, stats.get("PoolPreparedStatements"));
+        BaseDaoFactory.closeDataSource("h2_pool");
+        Assert.assertNull(BaseDaoFactory.poolStats().get("h2_pool"));
+    }
+
+    @Test
+    public void routingRunnerDaoTest() throws SQLException {
+        DataSource primary = h2DataSource("routing_primary", "primary");
+        List<DataSource> replicas = Arrays.asList(h2DataSource("routing_replica1", "replica1"),
+                h2DataSource("routing_replica2", "replica2"));
+        RoutingRunnerDao routing = new RoutingRunnerDao(primary, replicas, RoutingRunnerDao.ReadStrategy.ROUND_ROBIN);
+        routing.setStickyPrimaryMillis(60000);
+        BaseDao<Long> baseDao = BaseDaoFactory.createBaseDao(routing, "t_user", "user_id");
+
+        Assert.assertEquals("replica1", baseDao.selectOne(1).get("user_name"));
+        Assert.assertEquals("replica2", baseDao.selectOne(1).get("user_name"));
+        Assert.assertEquals("replica1", baseDao.selectOne(1).get("user_name"));
+
+        Map<String, String> dataMap = new LinkedHashMap<>();
+        dataMap.put("user_id", "1");
+        dataMap.put("user_name", "primary_updated");
+        Assert.assertEquals(1, baseDao.update(dataMap));
+        Assert.assertEquals("primary_updated", baseDao.selectOne(1).get("user_name"));
+        Assert.assertArrayEquals(new int[]{0, 0}, routing.inFlight());
+
+        routing.setStickyPrimaryMillis(0);
+        Assert.assertEquals("replica2", baseDao.selectOne(1).get("user_name"));
+    }
+
+    @Test
+    public void asyncBaseDaoTest() throws Exception {
+        BaseDao<Long> userDao = BaseDaoFactory.createBaseDao(new RunnerDao(h2DataSource("async_user", "gary")), "t_user", "user_id");
+        BaseDao<Long> otherDao = BaseDaoFactory.createBaseDao(new RunnerDao(h2DataSource("async_other", "hu")), "t_user", "user_id");
+        DaoExecutor executor = DaoExecutor.create(4, 1000);
+        AsyncBaseDao<Long> asyncUserDao = new AsyncBaseDao<>(userDao, executor);
+        AsyncBaseDao<Long> asyncOtherDao = new AsyncBaseDao<>(otherDao, executor);
+
+        CompletableFuture<Map<String, String>> user = asyncUserDao.selectOne(1);
+        CompletableFuture<Map<String, String>> other = asyncOtherDao.selectOne(1);
+        CompletableFuture<Integer> count = asyncUserDao.count();
+        CompletableFuture.allOf(user, other, count).get(10, TimeUnit.SECONDS);
+        Assert.assertEquals("gary", user.get().get("user_name"));
+        Assert.assertEquals("hu", other.get().get("user_name"));
+        Assert.assertEquals(Integer.valueOf(1), count.get());
+        Assert.assertEquals(4, executor.availablePermits());
+        executor.shutdown();
+
+        DaoExecutor bounded = DaoExecutor.create(1, 0);
+        CountDownLatch latch = new CountDownLatch(1);
+        CompletableFuture<Boolean> blocking = bounded.submit(() -> {
+            try {
+                return latch.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new SQLException(e);
+            }
+        });
+        try {
+            bounded.submit(userDao::count).get(10, TimeUnit.SECONDS);
+            Assert.fail("expect rejected");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        latch.countDown();
+        Assert.assertTrue(blocking.get(10, TimeUnit.SECONDS));
+        bounded.shutdown();
+    }
+
+    @Test
+    public void queryBatchTest() throws SQLException {
+        RunnerDao runnerDao = new RunnerDao(h2DataSource("query_batch", "gary"));
+        BaseDao<Long> userDao = BaseDaoFactory.createBaseDao(runnerDao, "t_user", "user_id");
+
+        QueryBatch batch = new QueryBatch();
+        QueryBatch.Result<Map<String, String>> user = userDao.selectOne(batch, 1L);
+        QueryBatch.Result<Map<String, String>> missing = userDao.selectOne(batch, 99L);
+        QueryBatch.Result<Long> count = batch.add("select count(*) from t_user", rs -> rs.next() ? rs.getLong(1) : 0L);
+        try {
+            user.get();
+            Assert.fail("expect not executed");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(3, batch.size());
+        }
+        batch.execute(runnerDao);
+        Assert.assertEquals("gary", user.get().get("user_name"));
+        Assert.assertNull(missing.get());
+        Assert.assertEquals(Long.valueOf(1), count.get());
+    }
+
+    /**
+     * H2内存库, t_user表中只有一行 user_name=name 的数据
+     */
+    private DataSource h2DataSource(String dbName, String name) throws SQLException {
+        DataSource dataSource = h2UserDataSource(dbName);
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("insert into t_user (user_name) values ('" + name + "')");
+        }
+        return dataSource;
+    }
+
+    /**
+     * H2内存库(MySQL模式), 建好t_user表
+     */
+    private RunnerDao h2RunnerDao(String dbName) throws SQLException {
+        return new RunnerDao(h2UserDataSource(dbName));
+    }
+
+    private DataSource h2UserDataSource(String dbName) throws SQLException {
+        return h2UserDataSource(dbName, "MySQL");
+    }
+
+    private DataSource h2UserDataSource(String dbName, String mode) throws SQLException {
+        return h2UserDataSource(dbName, mode, true);
+    }
+
+    private DataSource h2UserDataSource(String dbName, String mode, boolean toLower) throws SQLException {
+        String url = "jdbc:h2:mem:" + dbName + ";MODE=" + mode + (toLower ? ";DATABASE_TO_LOWER=TRUE" : "") + ";DB_CLOSE_DELAY=-1";
+        DataSource dataSource = BaseDaoFactory.dataSourceInstance("org.h2.Driver", url, "sa", "");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("create table t_user (user_id bigint auto_increment primary key, "
+                    + "user_name varchar(64), email varchar(64))");
+        }
+        return dataSource;
+    }
+
+    @Test
+    public void baseMapperTest() throws SQLException {
+        BaseDao<Long> baseDao = BaseDaoFactory.createBaseDao(h2RunnerDao("base_mapper"), "t_user", "user_id");
+        TestMapper mapper = new TestMapper(baseDao);
+        List<TestBean> beans = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            beans.add(TestBean.builder().userName("user" + i).build());
+        }
+        List<Serializable> keys = mapper.batchInsert(beans);
+        Assert.assertEquals(3, keys.size());
+        Assert.assertEquals(keys.get(2), beans.get(2).getUserId());
+
+        List<TestBean> all = mapper.selectAll();
+        Assert.assertEquals(beans, all);
+
+        TestBean bean = mapper.selectOne(keys.get(1));
+        bean.setEmail("user1@hui.com");
+        Assert.assertEquals(1, mapper.update(bean));
+        Assert.assertEquals("user1@hui.com", mapper.selectOne(keys.get(1)).getEmail());
+
+        all.forEach(x -> x.setUserName(x.getUserName() + "_updated"));
+        Assert.assertEquals(Arrays.asList(1, 1, 1), mapper.batchUpdate(all));
+        Assert.assertEquals("user0_updated", mapper.selectOne(keys.get(0)).getUserName());
+    }
+
+    @Test
+    public void baseMapperCacheTest() throws SQLException {
+        BaseDao<Long> baseDao = BaseDaoFactory.createBaseDao(h2RunnerDao("base_mapper_cache"), "t_user", "user_id",
+                new LruDaoCache<>(16, 1, TimeUnit.MINUTES));
+        TestMapper mapper = new TestMapper(baseDao);
+        TestBean bean = TestBean.builder().userName("gary").build();
+        Serializable id = mapper.insert(bean);
+        Assert.assertEquals("gary", baseDao.selectOne(id).get("user_name"));
+
+        // 经mapper写入后, BaseDao的缓存不再返回旧数据
+        bean.setUserName("hu");
+        Assert.assertEquals(1, mapper.update(bean));
+        Assert.assertEquals("hu", baseDao.selectOne(id).get("user_name"));
+
+        bean.setUserName("gary.hu");
+        mapper.batchUpdate(Collections.singletonList(bean));
+        Assert.assertEquals("gary.hu", baseDao.selectOne(id).get("user_name"));
+
+        mapper.delete(id);
+        Assert.assertEquals(0, baseDao.count());
+        bean.setEmail("gary@hui.com");
+        mapper.batchInsert(Collections.singletonList(bean));
+        Assert.assertEquals("gary@hui.com", baseDao.selectOne(id).get("email"));
     }
 
     @Test
     public void sqlGenTest(){
         String sql = SqlGenerator.selectBuilder().select("t_uc_sys_user").where("id=?").build().generator();
+        Assert.assertEquals("select * from t_uc_sys_user where id=?;", sql);
+
+        SqlGenerator insert = SqlGenerator.insertBuilder().insert("t_uc_sys_user")
+                .fields("user_id", "user_name").values("1", "gary").values("2", "hu").build();
+        Assert.assertEquals("insert into t_uc_sys_user (user_id,user_name) values (?,?),(?,?);", insert.generator());
+        Assert.assertArrayEquals(new Object[]{"1", "gary", "2", "hu"}, insert.getParams());
+
+        Map<String, String> dataMap = new LinkedHashMap<>();
+        dataMap.put("user_id", "1");
+        dataMap.put("user_name", "gary");
+        SqlGenerator update = SqlGenerator.updateBuilder().update("t_uc_sys_user")
+                .setFields(dataMap, "user_id").wherePK("user_id", "1").build();
+        Assert.assertEquals("update t_uc_sys_user set user_name=? where user_id=?;", update.generator());
+        Assert.assertArrayEquals(new Object[]{"gary", "1"}, update.getParams());
+        Assert.assertEquals(2, dataMap.size());
+
+        SqlGenerator delete = SqlGenerator.deleteBuilder().delete("t_uc_sys_user").in("user_id", 1, 2, 3).build();
+        Assert.assertEquals("delete from t_uc_sys_user where user_id in (?,?,?);", delete.generator());
+        Assert.assertArrayEquals(new Object[]{1, 2, 3}, delete.getParams());
+    }
+
+    @Test
+    public void sqlTemplateTest() {
+        String sql = SqlGenerator.updateTemplate("t_uc_sys_user", "user_id", "user_name", "email");
+        Assert.assertEquals("update t_uc_sys_user set user_name=?,email=? where user_id=?;", sql);
+        Assert.assertSame(sql, SqlGenerator.updateTemplate("t_uc_sys_user", "user_id", "user_name", "email"));
+        Assert.assertEquals("insert into t_uc_sys_user (user_id,user_name) values (?,?);",
+                SqlGenerator.insertTemplate("t_uc_sys_user", "user_id", "user_name"));
+        Assert.assertEquals("delete from t_uc_sys_user where user_id=?;",
+                SqlGenerator.deleteTemplate("t_uc_sys_user", "user_id"));
+        Assert.assertEquals("insert into t_uc_sys_user (user_id,user_name) values (?,?),(?,?) on duplicate key update user_name=values(user_name);",
+                SqlGenerator.upsertTemplate("t_uc_sys_user", 2, "user_id", "user_id", "user_name"));
+        // 多行VALUES与IN列表按行数现场拼接, 不按行数缓存
+        String batch = SqlGenerator.batchInsertTemplate("t_uc_sys_user", 3, "user_id", "user_name");
+        Assert.assertEquals("insert into t_uc_sys_user (user_id,user_name) values (?,?),(?,?),(?,?);", batch);
+        Assert.assertNotSame(batch, SqlGenerator.batchInsertTemplate("t_uc_sys_user", 3, "user_id", "user_name"));
+        Assert.assertSame(SqlGenerator.insertTemplate("t_uc_sys_user", "user_id", "user_name"),
+                SqlGenerator.batchInsertTemplate("t_uc_sys_user", 1, "user_id", "user_name"));
+        Assert.assertEquals("select * from t_uc_sys_user where user_id in (?,?,?);",
+                SqlGenerator.selectInTemplate("t_uc_sys_user", "user_id", 3));
     }
 
 }
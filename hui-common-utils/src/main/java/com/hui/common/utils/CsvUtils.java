@@ -5,6 +5,7 @@ import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -27,4 +28,21 @@ public class CsvUtils {
         List<String> records = csvRecords.stream().map(x -> x.getComment()).collect(Collectors.toList());
         return records;
     }
+
+    /**
+     * 按UTF-8逐行解析CSV, headers为各列名称, 调用方负责关闭返回的解析器; 创建解析器失败时关闭文件
+     */
+    public static CSVParser parse(File file, String... headers) throws IOException {
+        Reader in = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
+        try {
+            return CSVFormat.DEFAULT.withHeader(headers).parse(in);
+        } catch (IOException | RuntimeException e) {
+            try {
+                in.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
 }
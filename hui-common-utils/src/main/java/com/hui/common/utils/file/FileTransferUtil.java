@@ -0,0 +1,206 @@
+package com.hui.common.utils.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Predicate;
+
+/**
+ * <b><code>FileTransferUtil</code></b>
+ * <p/>
+ * Description: 文件零拷贝传输. 整文件及区间复制、文件发送到socket使用 {@link FileChannel#transferTo}/{@link FileChannel#transferFrom},
+ * 由内核直接搬运数据, 不经过用户态缓冲区; 需要按行过滤时使用 {@link #copyLines}, 在直接缓冲区上判断每行,
+ * 保留的连续行原样整段写出, 不解码为String
+ * <p/>
+ * <b>Creation Time:</b> 2019/12/31 10:30.
+ *
+ * @author HuWeihui
+ */
+public class FileTransferUtil {
+
+    /**
+     * 过滤复制默认读缓冲区1MB, 须大于最长的一行
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * 复制整个文件, 覆盖target
+     *
+     * @return 复制的字节数
+     */
+    public static long copy(Path source, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = openTarget(target)) {
+            return transferTo(in, 0, in.size(), out);
+        }
+    }
+
+    /**
+     * 复制source的[position, position + count)到target的targetPosition处, target不截断,
+     * 可用于分段并行复制或拼接文件. count超出文件末尾时只复制到末尾; targetPosition超出target末尾时文件随写入扩展.
+     * transferFrom在position超出目标文件大小时不传输任何字节, 因此这里由源文件transferTo到定位后的目标通道
+     *
+     * @return 复制的字节数
+     */
+    public static long copyRange(Path source, long position, long count, Path target, long targetPosition) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            out.position(targetPosition);
+            return transferTo(in, position, count, out);
+        }
+    }
+
+    /**
+     * 将整个文件发送到target, 如阻塞模式的SocketChannel; 不关闭target
+     *
+     * @return 发送的字节数
+     */
+    public static long send(Path source, WritableByteChannel target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            return transferTo(in, 0, in.size(), target);
+        }
+    }
+
+    /**
+     * 循环调用transferTo直到传完count字节或到达文件末尾; 单次transferTo可能只传输一部分,
+     * 非阻塞的target写满时会返回0, 此处持续重试, 因此target应为阻塞模式. 不改变in的position.
+     * count可传Long.MAX_VALUE表示到文件末尾
+     *
+     * @return 传输的字节数
+     */
+    public static long transferTo(FileChannel in, long position, long count, WritableByteChannel target) throws IOException {
+        if (position < 0 || count < 0) {
+            throw new IllegalArgumentException("position与count不能为负数");
+        }
+        long size = in.size();
+        // position + count可能溢出, 按剩余长度比较
+        long end = count > size - position ? size : position + count;
+        long transferred = 0;
+        while (position + transferred < end) {
+            long n = in.transferTo(position + transferred, end - position - transferred, target);
+            // 传输期间文件被截断
+            if (n <= 0 && position + transferred >= in.size()) {
+                break;
+            }
+            transferred += n;
+        }
+        return transferred;
+    }
+
+    /**
+     * 循环调用transferFrom, 从source当前位置读取最多count字节写入out的position处, source读完时结束.
+     * position须不超过out的当前大小, 否则不传输. 不改变out的position
+     *
+     * @return 传输的字节数
+     */
+    public static long transferFrom(ReadableByteChannel source, FileChannel out, long position, long count) throws IOException {
+        long transferred = 0;
+        while (transferred < count) {
+            long n = out.transferFrom(source, position + transferred, count - transferred);
+            if (n <= 0) {
+                break;
+            }
+            transferred += n;
+        }
+        return transferred;
+    }
+
+    /**
+     * 按行过滤复制, 覆盖target
+     *
+     * @return 保留的行数
+     * @see #copyLines(Path, Path, Predicate, int)
+     */
+    public static long copyLines(Path source, Path target, Predicate<LineSlice> filter) throws IOException {
+        return copyLines(source, target, filter, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * 按行过滤复制: 文件顺序读入直接缓冲区, 每行以 {@link LineSlice}(不含换行符)交给filter判断,
+     * 相邻的保留行连同原换行符直接从读缓冲区整段写出, 没有逐行解码和复制. 单行超过bufferSize时抛出IOException
+     *
+     * @return 保留的行数
+     */
+    public static long copyLines(Path source, Path target, Predicate<LineSlice> filter, int bufferSize) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = openTarget(target)) {
+            return new LineFilter(ByteBuffer.allocateDirect(bufferSize), filter, out).copy(in);
+        }
+    }
+
+    private static FileChannel openTarget(Path target) throws IOException {
+        return FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private static final class LineFilter implements LineHandler {
+        private final ByteBuffer buffer;
+        private final ByteBuffer view;
+        private final Predicate<LineSlice> filter;
+        private final WritableByteChannel out;
+        private long bufferPosition;
+        private long kept;
+        /**
+         * 当前待写出的连续保留行的起点, -1表示上一行被丢弃
+         */
+        private int runStart;
+
+        LineFilter(ByteBuffer buffer, Predicate<LineSlice> filter, WritableByteChannel out) {
+            this.buffer = buffer;
+            this.view = buffer.duplicate();
+            this.filter = filter;
+            this.out = out;
+        }
+
+        long copy(FileChannel in) throws IOException {
+            boolean eof = false;
+            while (!eof) {
+                while (buffer.hasRemaining()) {
+                    if (in.read(buffer) < 0) {
+                        eof = true;
+                        break;
+                    }
+                }
+                int end = buffer.position();
+                int cut = eof ? end : NioReadFileUtil.lastLineEnd(buffer, end);
+                if (cut < 0) {
+                    throw new IOException("单行超过读缓冲区大小" + buffer.capacity() + ", 位置: " + bufferPosition);
+                }
+                runStart = 0;
+                NioReadFileUtil.scanLines(buffer, cut, new LineSlice(buffer, bufferPosition), this);
+                if (runStart >= 0) {
+                    write(runStart, cut);
+                }
+                // 余下的半行移到缓冲区开头
+                buffer.limit(end).position(cut);
+                buffer.compact();
+                bufferPosition += cut;
+            }
+            return kept;
+        }
+
+        @Override
+        public void handle(LineSlice line) throws IOException {
+            int offset = (int) (line.getFilePosition() - bufferPosition);
+            if (filter.test(line)) {
+                kept++;
+                if (runStart < 0) {
+                    runStart = offset;
+                }
+            } else if (runStart >= 0) {
+                write(runStart, offset);
+                runStart = -1;
+            }
+        }
+
+        private void write(int from, int to) throws IOException {
+            view.limit(to).position(from);
+            while (view.hasRemaining()) {
+                out.write(view);
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.hui.common.utils.file;
+
+import java.io.IOException;
+
+/**
+ * <b><code>LineHandler</code></b>
+ * <p/>
+ * Description: 按行回调, 多个分块并行回调时实现需线程安全
+ * <p/>
+ * <b>Creation Time:</b> 2019/12/30 20:10.
+ *
+ * @author HuWeihui
+ */
+@FunctionalInterface
+public interface LineHandler {
+
+    /**
+     * 处理一行数据
+     *
+     * @param line 当前行(不含换行符), 仅在本次回调内有效, 需保留时请复制
+     * @throws IOException 抛出后终止读取
+     */
+    void handle(LineSlice line) throws IOException;
+}
@@ -0,0 +1,117 @@
+package com.hui.common.utils.file;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <b><code>LineSlice</code></b>
+ * <p/>
+ * Description: 缓冲区中一行数据的视图(不含换行符), 同一分块内的所有行复用同一个实例, 不复制字节;
+ * 仅在回调内有效, 需保留时通过 {@link #getBytes(byte[], int)} 或 {@link #toString(Charset)} 复制
+ * <p/>
+ * <b>Creation Time:</b> 2019/12/30 20:15.
+ *
+ * @author HuWeihui
+ */
+public final class LineSlice {
+
+    private final ByteBuffer buffer;
+    private final ByteBuffer view;
+    private final long bufferPosition;
+    private int offset;
+    private int length;
+
+    /**
+     * @param buffer         行所在的缓冲区, 按绝对下标读取
+     * @param bufferPosition 缓冲区第0个字节在文件中的位置
+     */
+    public LineSlice(ByteBuffer buffer, long bufferPosition) {
+        this.buffer = buffer;
+        this.view = buffer.duplicate();
+        this.bufferPosition = bufferPosition;
+    }
+
+    LineSlice reset(int offset, int length) {
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public byte byteAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+        }
+        return buffer.get(offset + index);
+    }
+
+    /**
+     * 行首在文件中的字节位置
+     */
+    public long getFilePosition() {
+        return bufferPosition + offset;
+    }
+
+    /**
+     * 从from开始查找字节b, 未找到返回-1
+     */
+    public int indexOf(byte b, int from) {
+        for (int i = Math.max(from, 0); i < length; i++) {
+            if (buffer.get(offset + i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean startsWith(byte[] prefix) {
+        if (prefix.length > length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(offset + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 本行的ByteBuffer视图, position/limit为行首尾; 与本实例共用, 下一行时失效
+     */
+    public ByteBuffer buffer() {
+        view.clear();
+        view.position(offset);
+        view.limit(offset + length);
+        return view;
+    }
+
+    /**
+     * 复制整行到dst[dstOffset..]
+     */
+    public void getBytes(byte[] dst, int dstOffset) {
+        buffer().get(dst, dstOffset, length);
+    }
+
+    /**
+     * 将整行写入dst
+     */
+    public void writeTo(ByteBuffer dst) {
+        dst.put(buffer());
+    }
+
+    public String toString(Charset charset) {
+        byte[] bytes = new byte[length];
+        getBytes(bytes, 0);
+        return new String(bytes, charset);
+    }
+
+    @Override
+    public String toString() {
+        return toString(StandardCharsets.UTF_8);
+    }
+}
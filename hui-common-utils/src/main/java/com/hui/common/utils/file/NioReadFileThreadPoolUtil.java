@@ -1,13 +1,367 @@
 package com.hui.common.utils.file;
 
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * <b><code>NioReadFileThreadPoolUtil</code></b>
  * <p/>
- * Description:
+ * Description: 多线程按行处理文件的流水线: 一个读线程将文件顺序读入池化的直接缓冲区, 每个缓冲区按整行切分为一批,
+ * 经有界队列交给workers个处理线程逐行转换, 调用线程负责按读入顺序(ordered)或完成顺序写出.
+ * 读缓冲区与输出缓冲区各bufferCount个, 写出跟不上时处理线程与读线程依次阻塞, 内存占用有上限.
+ * 一个实例同一时间只运行一条流水线
  * <p/>
  * <b>Creation Time:</b> 2018/12/29 1:21.
  *
  * @author HuWeihui
  */
 public class NioReadFileThreadPoolUtil {
+
+    private static final byte LF = '\n';
+    private static final long POLL_MILLIS = 100;
+
+    /**
+     * 处理线程数
+     */
+    @Getter
+    @Setter
+    private int workers = Runtime.getRuntime().availableProcessors();
+    /**
+     * 每个读缓冲区的大小, 须大于最长的一行
+     */
+    @Getter
+    @Setter
+    private int readBufferSize = 1 << 20;
+    /**
+     * 读缓冲区与输出缓冲区的个数, 即流水线中同时存在的批数上限, 至少为2
+     */
+    @Getter
+    @Setter
+    private int bufferCount = Runtime.getRuntime().availableProcessors() * 2 + 2;
+    /**
+     * true: 按读入顺序写出; false: 按处理完成顺序写出
+     */
+    @Getter
+    @Setter
+    private boolean ordered = true;
+
+    /**
+     * 逐行转换, 转换结果写入out, 不写则丢弃该行
+     */
+    @FunctionalInterface
+    public interface LineProcessor {
+        void process(LineSlice line, LineOutput out) throws IOException;
+    }
+
+    /**
+     * 处理input的每一行, 结果写入output文件(覆盖)
+     *
+     * @return 行数
+     */
+    public long process(Path input, Path output, LineProcessor processor) throws IOException {
+        try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            return process(input, out, processor);
+        }
+    }
+
+    /**
+     * 处理input的每一行, 结果写入output, 不关闭output
+     *
+     * @return 行数
+     */
+    public long process(Path input, WritableByteChannel output, LineProcessor processor) throws IOException {
+        if (bufferCount < 2 || workers < 1) {
+            throw new IllegalArgumentException("bufferCount至少为2, workers至少为1");
+        }
+        Pipeline pipeline = new Pipeline(processor);
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ)) {
+            pipeline.executor.execute(() -> pipeline.read(in));
+            for (int i = 0; i < workers; i++) {
+                pipeline.executor.execute(pipeline::work);
+            }
+            pipeline.write(output);
+            return pipeline.lines.sum();
+        } finally {
+            pipeline.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 一批整行: 读缓冲区[0, limit)及其输出
+     */
+    private static final class Batch {
+        private final long sequence;
+        private final ByteBuffer data;
+        private final long filePosition;
+        private final LineOutput output;
+
+        Batch(long sequence, ByteBuffer data, long filePosition, LineOutput output) {
+            this.sequence = sequence;
+            this.data = data;
+            this.filePosition = filePosition;
+            this.output = output;
+        }
+    }
+
+    private static final Batch END = new Batch(-1, null, -1, null);
+
+    private final class Pipeline {
+        private final LineProcessor processor;
+        private final BlockingQueue<ByteBuffer> readBuffers = new ArrayBlockingQueue<>(bufferCount);
+        private final BlockingQueue<LineOutput> outputs = new ArrayBlockingQueue<>(bufferCount);
+        private final BlockingQueue<Batch> batches = new ArrayBlockingQueue<>(bufferCount + workers);
+        private final BlockingQueue<Batch> processed = new ArrayBlockingQueue<>(bufferCount + workers);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final LongAdder lines = new LongAdder();
+        private final ExecutorService executor;
+
+        Pipeline(LineProcessor processor) {
+            this.processor = processor;
+            for (int i = 0; i < bufferCount; i++) {
+                readBuffers.add(ByteBuffer.allocateDirect(readBufferSize));
+                outputs.add(new LineOutput(Math.max(readBufferSize / 4, 1024)));
+            }
+            AtomicInteger index = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(workers + 1, workers + 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "hui-file-pipeline-" + index.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        /**
+         * 读线程: 读满缓冲区后在最后一个换行处截断, 余下的半行复制到下一个缓冲区开头
+         */
+        void read(FileChannel in) {
+            try {
+                long sequence = 0;
+                long filePosition = 0;
+                ByteBuffer buffer = readBuffers.take();
+                buffer.clear();
+                boolean eof = false;
+                while (!eof) {
+                    while (buffer.hasRemaining()) {
+                        if (in.read(buffer) < 0) {
+                            eof = true;
+                            break;
+                        }
+                    }
+                    int end = buffer.position();
+                    int cut = eof ? end : NioReadFileUtil.lastLineEnd(buffer, end);
+                    if (cut < 0) {
+                        throw new IOException("单行超过读缓冲区大小" + readBufferSize + ", 位置: " + filePosition);
+                    }
+                    ByteBuffer next = null;
+                    if (!eof) {
+                        next = readBuffers.take();
+                        next.clear();
+                        for (int i = cut; i < end; i++) {
+                            next.put(buffer.get(i));
+                        }
+                    }
+                    if (cut > 0) {
+                        buffer.limit(cut);
+                        batches.put(new Batch(sequence++, buffer, filePosition, outputs.take()));
+                        filePosition += cut;
+                    } else {
+                        readBuffers.put(buffer);
+                    }
+                    buffer = next;
+                }
+            } catch (Throwable e) {
+                fail(e);
+            } finally {
+                for (int i = 0; i < workers; i++) {
+                    batches.offer(END);
+                }
+            }
+        }
+
+        /**
+         * 处理线程: 逐行转换后归还读缓冲区, 输出交给写出
+         */
+        void work() {
+            try {
+                while (true) {
+                    Batch batch = batches.take();
+                    if (batch == END) {
+                        break;
+                    }
+                    LineOutput output = batch.output;
+                    LineSlice slice = new LineSlice(batch.data, batch.filePosition);
+                    lines.add(NioReadFileUtil.scanLines(batch.data, batch.data.limit(), slice,
+                            line -> processor.process(line, output)));
+                    readBuffers.put(batch.data);
+                    processed.put(batch);
+                }
+            } catch (Throwable e) {
+                fail(e);
+            } finally {
+                processed.offer(END);
+            }
+        }
+
+        /**
+         * 调用线程: ordered时暂存先完成的批, 按序号依次写出
+         */
+        void write(WritableByteChannel out) throws IOException {
+            Map<Long, Batch> pending = new HashMap<>();
+            long nextSequence = 0;
+            int finished = 0;
+            try {
+                while (finished < workers) {
+                    checkFailure();
+                    Batch batch = processed.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (null == batch) {
+                        continue;
+                    }
+                    if (batch == END) {
+                        finished++;
+                        continue;
+                    }
+                    if (!ordered) {
+                        flush(batch, out);
+                        continue;
+                    }
+                    pending.put(batch.sequence, batch);
+                    for (Batch next; null != (next = pending.remove(nextSequence)); nextSequence++) {
+                        flush(next, out);
+                    }
+                }
+                checkFailure();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("文件流水线被中断");
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+                throw e;
+            }
+        }
+
+        private void flush(Batch batch, WritableByteChannel out) throws IOException, InterruptedException {
+            ByteBuffer bytes = batch.output.flip();
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+            batch.output.clear();
+            outputs.put(batch.output);
+        }
+
+        /**
+         * 记录第一个异常, 写出线程轮询到后抛出, 由process中断其余线程
+         */
+        private void fail(Throwable e) {
+            failure.compareAndSet(null, e);
+        }
+
+        private void checkFailure() throws IOException {
+            Throwable e = failure.get();
+            if (null == e) {
+                return;
+            }
+            if (e instanceof IOException) {
+                throw (IOException) e;
+            }
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+            throw new IOException("文件流水线执行失败", e);
+        }
+    }
+
+    /**
+     * 一批行的输出缓冲区, 容量不足时翻倍扩容, 随批复用
+     */
+    public static final class LineOutput {
+        private ByteBuffer buffer;
+
+        LineOutput(int capacity) {
+            this.buffer = ByteBuffer.allocate(capacity);
+        }
+
+        public LineOutput write(byte b) {
+            ensure(1);
+            buffer.put(b);
+            return this;
+        }
+
+        public LineOutput write(byte[] bytes) {
+            return write(bytes, 0, bytes.length);
+        }
+
+        public LineOutput write(byte[] bytes, int offset, int length) {
+            ensure(length);
+            buffer.put(bytes, offset, length);
+            return this;
+        }
+
+        public LineOutput write(LineSlice line) {
+            ensure(line.length());
+            line.writeTo(buffer);
+            return this;
+        }
+
+        public LineOutput write(String text, Charset charset) {
+            return write(text.getBytes(charset));
+        }
+
+        /**
+         * 写入整行及换行符
+         */
+        public LineOutput writeLine(LineSlice line) {
+            return write(line).newLine();
+        }
+
+        public LineOutput newLine() {
+            return write(LF);
+        }
+
+        private void ensure(int length) {
+            if (buffer.remaining() >= length) {
+                return;
+            }
+            int capacity = buffer.capacity();
+            while (capacity - buffer.position() < length) {
+                capacity = capacity << 1;
+            }
+            ByteBuffer grown = ByteBuffer.allocate(capacity);
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+
+        ByteBuffer flip() {
+            buffer.flip();
+            return buffer;
+        }
+
+        void clear() {
+            buffer.clear();
+        }
+    }
 }
@@ -1,15 +1,24 @@
 package com.hui.common.utils.file;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * <b><code>NioReadFileUtil</code></b>
  * <p/>
- * Description: NIO按行读取文件
+ * Description: NIO按行读取文件. {@link #readLines} 将文件内存映射后按换行对齐切分成块,
+ * 在fork/join线程池中并行扫描, 每行以复用的 {@link LineSlice} 回调, 不为每行分配数组
  * <p/>
  * <b>Creation Time:</b> 2018/12/29 1:17.
  *
@@ -17,46 +26,191 @@ import java.nio.channels.FileChannel;
  */
 public class NioReadFileUtil {
 
-    private static final String LF = "\n";
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
 
-    public static void readByLine(FileChannel inCh, ByteBuffer rbuf, FileChannel outCh, ByteBuffer wbuf, String encode){
-        try {
-            //用来缓存上次读取剩下的部分
-            byte[] temp = new byte[0];
-            //换行符
-            int LF = "\n".getBytes()[0];
-            while(inCh.read(rbuf) != -1){
-                int position = rbuf.position();
-                byte[] rbyte = new byte[position];
-                rbuf.flip();
-                rbuf.get(rbyte);
-                //判断是否有换行符
-                int startnum = 0;
-                for(int i = 0; i < rbyte.length; i++){
-                    //若存在换行符
-                    if(rbyte[i] == LF){
-                        byte[] line = new byte[temp.length + i - startnum + 1];
-                        System.arraycopy(temp, 0, line, 0, temp.length);
-                        System.arraycopy(rbyte, startnum, line, temp.length, i - startnum + 1);
-                        startnum = i + 1;
-                        temp = new byte[0];
-                        writeByLine(outCh,wbuf,line,encode);
-                    }
-                }
-                //说明rbyte最后还剩不完整的一行
-                if(startnum < rbyte.length){
-                    byte[] temp2 = new byte[temp.length + rbyte.length - startnum];
-                    System.arraycopy(temp, 0, temp2, 0, temp.length);
-                    System.arraycopy(rbyte, startnum, temp2, temp.length, rbyte.length - startnum);
-                    temp = temp2;
+    /**
+     * 默认每块64MB, 单次映射不能超过2GB
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64 << 20;
+
+    /**
+     * 在公共fork/join线程池中按行并行处理文件
+     *
+     * @return 行数
+     * @see #readLines(Path, LineHandler, ForkJoinPool, int)
+     */
+    public static long readLines(Path file, LineHandler handler) throws IOException {
+        return readLines(file, handler, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * 按行并行处理文件: 按chunkSize切块并顺延到下一个换行处, 各块分别映射并逐行回调;
+     * 行不含换行符(兼容\r\n), 最后一行可以没有换行. 不同块的行并发回调, 同一块内按文件顺序
+     *
+     * @param chunkSize 切块大小, 至少为1
+     * @return 行数
+     */
+    public static long readLines(Path file, LineHandler handler, ForkJoinPool pool, int chunkSize) throws IOException {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize至少为1");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                return 0;
+            }
+            long[] bounds = chunkBounds(channel, chunkSize);
+            try {
+                return pool.invoke(new ChunkTask(channel, bounds, 0, bounds.length - 1, handler));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * 各块的起止位置, 除首尾外均为某个换行符的下一个字节
+     */
+    private static long[] chunkBounds(FileChannel channel, int chunkSize) throws IOException {
+        long size = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(8192);
+        long start = 0;
+        while (size - start > chunkSize) {
+            long boundary = nextLineStart(channel, start + chunkSize - 1, probe);
+            if (boundary >= size) {
+                break;
+            }
+            if (boundary - start > Integer.MAX_VALUE) {
+                throw new IOException("单行超过2GB, 无法映射: " + start);
+            }
+            bounds.add(boundary);
+            start = boundary;
+        }
+        if (size - start > Integer.MAX_VALUE) {
+            throw new IOException("单行超过2GB, 无法映射: " + start);
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * 从position起第一个换行符的下一个位置, 没有换行时返回文件大小
+     */
+    private static long nextLineStart(FileChannel channel, long position, ByteBuffer probe) throws IOException {
+        long size = channel.size();
+        while (position < size) {
+            probe.clear();
+            int n = channel.read(probe, position);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (probe.get(i) == LF) {
+                    return position + i + 1;
                 }
-                rbuf.clear();
             }
-            //兼容最后一行没有换行的情况
-            if(temp.length > 0){
-                writeByLine(outCh,wbuf,temp,encode);
+            position += n;
+        }
+        return size;
+    }
+
+    /**
+     * 二分拆分块区间, 单块时映射并扫描
+     */
+    private static class ChunkTask extends RecursiveTask<Long> {
 
+        private final FileChannel channel;
+        private final long[] bounds;
+        private final int from;
+        private final int to;
+        private final LineHandler handler;
+
+        ChunkTask(FileChannel channel, long[] bounds, int from, int to, LineHandler handler) {
+            this.channel = channel;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+            this.handler = handler;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                ChunkTask left = new ChunkTask(channel, bounds, from, mid, handler);
+                left.fork();
+                long right = new ChunkTask(channel, bounds, mid, to, handler).compute();
+                return right + left.join();
+            }
+            try {
+                return scan(bounds[from], (int) (bounds[to] - bounds[from]));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private long scan(long position, int length) throws IOException {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            return scanLines(buffer, length, new LineSlice(buffer, position), handler);
+        }
+    }
+
+    /**
+     * 逐行回调buffer[0, length)中的行, 行不含换行符及行尾的\r, 最后一行可以没有换行
+     *
+     * @return 行数
+     */
+    static long scanLines(ByteBuffer buffer, int length, LineSlice slice, LineHandler handler) throws IOException {
+        long lines = 0;
+        int lineStart = 0;
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(i) == LF) {
+                handler.handle(slice.reset(lineStart, lineEnd(buffer, lineStart, i) - lineStart));
+                lines++;
+                lineStart = i + 1;
             }
+        }
+        // 兼容最后一行没有换行的情况
+        if (lineStart < length) {
+            handler.handle(slice.reset(lineStart, lineEnd(buffer, lineStart, length) - lineStart));
+            lines++;
+        }
+        return lines;
+    }
+
+    private static int lineEnd(ByteBuffer buffer, int lineStart, int end) {
+        return end > lineStart && buffer.get(end - 1) == CR ? end - 1 : end;
+    }
+
+    /**
+     * 最后一个换行符之后的位置, 没有换行返回-1
+     */
+    static int lastLineEnd(ByteBuffer buffer, int end) {
+        for (int i = end - 1; i >= 0; i--) {
+            if (buffer.get(i) == LF) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 逐行复制文件. 行原样写出, 等价于零拷贝复制inCh当前位置之后的内容; rbuf、wbuf、encode仅为兼容保留
+     *
+     * @deprecated 复制使用 {@link FileTransferUtil#copy(Path, Path)}, 过滤复制使用
+     * {@link FileTransferUtil#copyLines(Path, Path, java.util.function.Predicate)}, 按行处理使用 {@link #readLines(Path, LineHandler)}
+     */
+    @Deprecated
+    public static void readByLine(FileChannel inCh, ByteBuffer rbuf, FileChannel outCh, ByteBuffer wbuf, String encode){
+        try {
+            long position = inCh.position();
+            FileTransferUtil.transferTo(inCh, position, inCh.size() - position, outCh);
         } catch (IOException e) {
             e.printStackTrace();
         }finally{
@@ -70,39 +224,33 @@ public class NioReadFileUtil {
     }
 
     /**
-     * 按行写入文件
+     * 按行写入文件, 复用wbuf, 超出容量时分段写
      * @param outCh 写通道
      * @param wbuf 写缓冲区
      * @param line 行数据
-     * @param encode 编码
+     * @param encode 编码, 仅为兼容保留
      */
     public static void writeByLine(FileChannel outCh,ByteBuffer wbuf,byte[] line,String encode){
         try {
-            wbuf = ByteBuffer.allocate(line.length);
-            wbuf.clear();
-            wbuf.put(line);
-            wbuf.flip();
-            System.out.print(new String(line,0,line.length,encode));
-            while(wbuf.hasRemaining()){
-                outCh.write(wbuf);
+            int offset = 0;
+            while(offset < line.length){
+                int length = Math.min(wbuf.capacity(), line.length - offset);
+                wbuf.clear();
+                wbuf.put(line, offset, length);
+                wbuf.flip();
+                while(wbuf.hasRemaining()){
+                    outCh.write(wbuf);
+                }
+                offset += length;
             }
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
-    public static void main(String[] args) {
-        try {
-            RandomAccessFile inraf = new RandomAccessFile("D:\\test\\distance-final.txt","r");
-            RandomAccessFile outraf = new RandomAccessFile("D:\\test\\test\\demo_test.txt","rw");
-            FileChannel inch = inraf.getChannel();
-            FileChannel outch = outraf.getChannel();
-            ByteBuffer rbuf = ByteBuffer.allocate(1024);
-            ByteBuffer wbuf = ByteBuffer.allocate(1024);
-            readByLine(inch,rbuf,outch,wbuf,"UTF-8");
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        }
-
+    public static void main(String[] args) throws IOException {
+        LongAdder bytes = new LongAdder();
+        long lines = readLines(Paths.get("D:\\test\\distance-final.txt"), line -> bytes.add(line.length()));
+        System.out.println(lines + " lines, " + bytes.sum() + " bytes");
     }
 }
@@ -0,0 +1,119 @@
+package com.hui.common.utils.web;
+
+import com.hui.common.utils.ConfigUtils;
+import lombok.Data;
+
+/**
+ * <code>SnowflakeConfig</code>
+ * <desc>
+ * 描述： 雪花ID的位布局、起始时间、机器ID分配及时钟回拨策略, 可通过配置文件按前缀加载, 如 common.cfg 中:
+ * snowflake.workerId=12
+ * snowflake.workerLeaseDir=/data/snowflake
+ * snowflake.clockBackwards=WAIT
+ * <desc/>
+ * Creation Time: 2019/12/29 15:10.
+ *
+ * @author Gary.Hu
+ */
+@Data
+public class SnowflakeConfig {
+
+    private static final String DEFAULT_CONFIG = "common.cfg";
+
+    /**
+     * 默认起始时间 2019-01-01 00:00:00 +08:00
+     */
+    public static final long DEFAULT_EPOCH = 1546272000000L;
+
+    /**
+     * 时钟回拨处理策略
+     */
+    public enum ClockBackwards {
+        /**
+         * 回拨不超过maxBorrowMillis时继续使用上次时间戳(借用未来毫秒), 超出后等待, 最多等待maxWaitMillis
+         */
+        BORROW,
+        /**
+         * 等待时钟追上上次时间戳, 最多等待maxWaitMillis
+         */
+        WAIT,
+        /**
+         * 立即抛出异常
+         */
+        FAIL
+    }
+
+    /**
+     * 起始时间(毫秒), 须早于当前时间
+     */
+    private long epoch = DEFAULT_EPOCH;
+    private int timestampBits = 41;
+    private int workerBits = 10;
+    private int sequenceBits = 12;
+    /**
+     * 显式指定的机器ID, 优先级最高
+     */
+    private Long workerId;
+    /**
+     * 未指定workerId时, 在该目录下按文件锁租用一个机器ID, 同一目录下的进程互不重复
+     */
+    private String workerLeaseDir;
+    private ClockBackwards clockBackwards = ClockBackwards.BORROW;
+    /**
+     * ID时间戳最多领先系统时钟的毫秒数, 仅BORROW有效
+     */
+    private long maxBorrowMillis = 5L;
+    /**
+     * 回拨超出容忍范围时最多等待的毫秒数, FAIL不等待
+     */
+    private long maxWaitMillis = 1000L;
+
+    /**
+     * 从 common.cfg 读取 {prefix}.xxx 配置, 未配置的项使用默认值
+     */
+    public static SnowflakeConfig fromConfig(String prefix) {
+        return fromConfig(DEFAULT_CONFIG, prefix);
+    }
+
+    public static SnowflakeConfig fromConfig(String configName, String prefix) {
+        SnowflakeConfig config = new SnowflakeConfig();
+        config.setEpoch(Long.parseLong(get(configName, prefix, "epoch", String.valueOf(config.epoch))));
+        config.setTimestampBits(Integer.parseInt(get(configName, prefix, "timestampBits", String.valueOf(config.timestampBits))));
+        config.setWorkerBits(Integer.parseInt(get(configName, prefix, "workerBits", String.valueOf(config.workerBits))));
+        config.setSequenceBits(Integer.parseInt(get(configName, prefix, "sequenceBits", String.valueOf(config.sequenceBits))));
+        String workerId = get(configName, prefix, "workerId", null);
+        config.setWorkerId(null == workerId ? null : Long.valueOf(workerId));
+        config.setWorkerLeaseDir(get(configName, prefix, "workerLeaseDir", null));
+        config.setClockBackwards(ClockBackwards.valueOf(get(configName, prefix, "clockBackwards", config.clockBackwards.name())));
+        config.setMaxBorrowMillis(Long.parseLong(get(configName, prefix, "maxBorrowMillis", String.valueOf(config.maxBorrowMillis))));
+        config.setMaxWaitMillis(Long.parseLong(get(configName, prefix, "maxWaitMillis", String.valueOf(config.maxWaitMillis))));
+        return config;
+    }
+
+    private static String get(String configName, String prefix, String key, String defaultVal) {
+        return ConfigUtils.INSTANCE.get(configName, prefix + "." + key, defaultVal);
+    }
+
+    /**
+     * 校验位布局, 符号位之外共63位
+     */
+    public void validate() {
+        if (timestampBits <= 0 || workerBits < 0 || sequenceBits <= 0 || timestampBits + workerBits + sequenceBits > 63) {
+            throw new IllegalArgumentException("雪花ID位布局非法: timestamp=" + timestampBits + ", worker=" + workerBits
+                    + ", sequence=" + sequenceBits + ", 三者之和不能超过63");
+        }
+        if (epoch > System.currentTimeMillis()) {
+            throw new IllegalArgumentException("雪花ID起始时间晚于当前时间: " + epoch);
+        }
+        if (null != workerId && (workerId < 0 || workerId > maxWorkerId())) {
+            throw new IllegalArgumentException("workerId超出范围[0," + maxWorkerId() + "]: " + workerId);
+        }
+        if (maxBorrowMillis < 0 || maxWaitMillis < 0) {
+            throw new IllegalArgumentException("maxBorrowMillis/maxWaitMillis不能小于0");
+        }
+    }
+
+    public long maxWorkerId() {
+        return ~(-1L << workerBits);
+    }
+}
@@ -1,10 +1,19 @@
 package com.hui.common.utils.web;
 
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.management.ManagementFactory;
 import java.lang.management.RuntimeMXBean;
 import java.net.NetworkInterface;
 import java.net.SocketException;
+import java.nio.file.Paths;
 import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * <b><code>SnowflakeIdGenerator</code></b>
@@ -21,89 +30,216 @@ import java.util.Enumeration;
  * 10位的数据机器位，可以部署在1024个节点，包括5位datacenterId和5位workerId
  * 12位序列，毫秒内的计数，12位的计数顺序号支持每个节点每毫秒(同一机器，同一时间截)产生4096个ID序号
  * 加起来刚好64位，为一个Long型。
- * SnowFlake的优点是，整体上按照时间自增排序，并且整个分布式系统内不会产生ID碰撞(由数据中心ID和机器ID作区分)，并且效率较高，经测试，SnowFlake每秒能够产生26万ID左右。
+ * SnowFlake的优点是，整体上按照时间自增排序，并且整个分布式系统内不会产生ID碰撞(由数据中心ID和机器ID作区分)，并且效率较高。
+ * 以上为默认布局，时间戳/机器/序列位数及起始时间可由 {@link SnowflakeConfig} 配置(common.cfg 中 snowflake.xxx)；
+ * 机器ID依次取 显式配置、workerLeaseDir下的文件锁租约({@link WorkerIdLease})、网卡与进程号哈希(可能碰撞，仅兜底)。
+ * 实现上把 时间戳+序列 打包在一个AtomicLong中CAS推进，无锁；序列用尽时等待下一毫秒。
+ * 时钟回拨按 {@link SnowflakeConfig.ClockBackwards} 处理：借用未来毫秒(有上限)、等待时钟追上、或直接失败，均不会产生重复ID；
+ * 借用期间重启的进程若立即以同一机器ID取号可能重复，因此重启间隔应大于maxBorrowMillis。
+ * 热点路径可用 {@link #nextIds(int)} 一次CAS取一批，或 {@link #nextLocalId()} 从线程本地预留的区间取号。
  *
  * <p/>
  * <b>Creation Time:</b> 2019/9/14 23:03.
  *
  * @author Hu-Weihui
  */
+@Slf4j
 public class SnowflakeIdHelper {
-    private final static long twepoch = 12888349746579L;
-    // 机器标识位数
-    private final static long workerIdBits = 5L;
-    // 数据中心标识位数
-    private final static long datacenterIdBits = 5L;
-
-    // 毫秒内自增位数
-    private final static long sequenceBits = 12L;
-    // 机器ID偏左移12位
-    private final static long workerIdShift = sequenceBits;
-    // 数据中心ID左移17位
-    private final static long datacenterIdShift = sequenceBits + workerIdBits;
-    // 时间毫秒左移22位
-    private final static long timestampLeftShift = sequenceBits + workerIdBits + datacenterIdBits;
+    // 兜底机器ID中进程编码与网卡编码各占的位数
+    private final static long legacyPieceBits = 5L;
+    //线程本地预留区间每次取号个数
+    private final static int LOCAL_RANGE_SIZE = 64;
+
+    private final long epoch;
+    private final long sequenceBits;
+    // 时间毫秒左移位数
+    private final long timestampLeftShift;
     //sequence掩码，确保sequnce不会超出上限
-    private final static long sequenceMask = -1L ^ (-1L << sequenceBits);
-    //上次时间戳
-    private static long lastTimestamp = -1L;
-    //序列
-    private long sequence = 0L;
+    private final long sequenceMask;
+    private final long maxTimestamp;
+    // 时间戳最多领先系统时钟的毫秒数
+    private final long borrowMillis;
+    // 回拨超出容忍范围时最多等待的毫秒数
+    private final long maxWaitMillis;
     //服务器ID
-    private long workerId = 1L;
-    private static long workerMask = -1L ^ (-1L << workerIdBits);
-    //进程编码
-    private long processId = 1L;
-    private static long processMask = -1L ^ (-1L << datacenterIdBits);
+    @Getter
+    private final long workerId;
+    //服务器ID移位后的值, 构造后不变
+    private final long nodeBits;
+    //文件锁租约, 随进程退出释放
+    private final WorkerIdLease lease;
+    //上次时间戳(相对epoch)<<sequenceBits | 上次序列, 初始为最小值
+    private final AtomicLong state = new AtomicLong(Long.MIN_VALUE);
 
-    private static SnowflakeIdHelper snowflakeIdHelper = null;
+    private final ThreadLocal<LocalRange> localRange = ThreadLocal.withInitial(LocalRange::new);
 
-    static{
-        snowflakeIdHelper = new SnowflakeIdHelper();
-    }
-    public static synchronized long nextId(){
+    private static final SnowflakeIdHelper snowflakeIdHelper = new SnowflakeIdHelper(SnowflakeConfig.fromConfig("snowflake"));
+
+    public static long nextId() {
         return snowflakeIdHelper.getNextId();
     }
 
-    private SnowflakeIdHelper() {
+    /**
+     * 一次取n个ID, 每次CAS预留当前毫秒内尽可能多的连续序列
+     */
+    public static long[] nextIds(int n) {
+        return snowflakeIdHelper.getNextIds(n);
+    }
+
+    /**
+     * 从当前线程预留的区间取号, 区间用完再一次CAS预留LOCAL_RANGE_SIZE个;
+     * ID仍全局唯一, 但不同线程之间不再严格按时间递增, 时间戳为预留区间时的时间
+     */
+    public static long nextLocalId() {
+        return snowflakeIdHelper.getNextLocalId();
+    }
 
+    public SnowflakeIdHelper(SnowflakeConfig config) {
+        config.validate();
+        this.epoch = config.getEpoch();
+        this.sequenceBits = config.getSequenceBits();
+        this.timestampLeftShift = config.getSequenceBits() + config.getWorkerBits();
+        this.sequenceMask = ~(-1L << config.getSequenceBits());
+        this.maxTimestamp = ~(-1L << config.getTimestampBits());
+        this.borrowMillis = config.getClockBackwards() == SnowflakeConfig.ClockBackwards.BORROW ? config.getMaxBorrowMillis() : 0;
+        this.maxWaitMillis = config.getClockBackwards() == SnowflakeConfig.ClockBackwards.FAIL ? 0 : config.getMaxWaitMillis();
+        if (null != config.getWorkerId()) {
+            this.lease = null;
+            this.workerId = config.getWorkerId();
+        } else if (null != config.getWorkerLeaseDir()) {
+            try {
+                this.lease = WorkerIdLease.acquire(Paths.get(config.getWorkerLeaseDir()), config.maxWorkerId());
+            } catch (IOException e) {
+                throw new UncheckedIOException("机器ID租约获取失败: " + config.getWorkerLeaseDir(), e);
+            }
+            this.workerId = lease.getWorkerId();
+        } else {
+            this.lease = null;
+            this.workerId = legacyWorkerId() & config.maxWorkerId();
+            log.warn("snowflake workerId not configured, use network/pid hash {}, ids may collide across hosts", workerId);
+        }
+        this.nodeBits = workerId << sequenceBits;
+    }
+
+    /**
+     * 网卡与进程号哈希(各5位), 默认布局下与早期版本的 数据中心-机器 两段一致
+     */
+    private long legacyWorkerId() {
         //获取机器编码
-        this.workerId=this.getMachineNum();
+        long machineId = this.getMachineNum();
         //获取进程编码
         RuntimeMXBean runtimeMXBean = ManagementFactory.getRuntimeMXBean();
-        this.processId=Long.valueOf(runtimeMXBean.getName().split("@")[0]).longValue();
+        long processId = Long.valueOf(runtimeMXBean.getName().split("@")[0]).longValue();
+        long pieceMask = ~(-1L << legacyPieceBits);
+        return ((processId & pieceMask) << legacyPieceBits) | (machineId & pieceMask);
+    }
 
-        //避免编码超出最大值
-        this.workerId=workerId & workerMask;
-        this.processId=processId & processMask;
+    public long getNextId() {
+        long current;
+        long next;
+        do {
+            current = state.get();
+            next = advance(current, 1);
+        } while (!state.compareAndSet(current, next));
+        return toId(next);
     }
 
-    public synchronized long getNextId() {
-        //获取时间戳
-        long timestamp = timeGen();
-        //如果时间戳小于上次时间戳则报错
-        if (timestamp < lastTimestamp) {
-            try {
-                throw new Exception("Clock moved backwards.  Refusing to generate id for " + (lastTimestamp - timestamp) + " milliseconds");
-            } catch (Exception e) {
-                e.printStackTrace();
+    public long[] getNextIds(int n) {
+        long[] ids = new long[n];
+        LocalRange range = new LocalRange();
+        int index = 0;
+        while (index < n) {
+            reserve(n - index, range);
+            while (range.next < range.end) {
+                ids[index++] = range.next++;
+            }
+        }
+        return ids;
+    }
+
+    public long getNextLocalId() {
+        LocalRange range = localRange.get();
+        if (range.next == range.end) {
+            reserve(LOCAL_RANGE_SIZE, range);
+        }
+        return range.next++;
+    }
+
+    /**
+     * 预留最多count个同一毫秒内的连续ID, 写入range: [next, end)
+     */
+    private void reserve(int count, LocalRange range) {
+        long current;
+        long next;
+        do {
+            current = state.get();
+            next = advance(current, count);
+        } while (!state.compareAndSet(current, next));
+        long lastSequence = next & sequenceMask;
+        long reserved = (next >> sequenceBits) == (current >> sequenceBits)
+                ? lastSequence - (current & sequenceMask)
+                : lastSequence + 1;
+        range.end = toId(next) + 1;
+        range.next = range.end - reserved;
+    }
+
+    /**
+     * 在current之后预留最多count个序列, 返回新状态(最后一个预留序列)
+     */
+    private long advance(long current, int count) {
+        long lastTimestamp = current >> sequenceBits;
+        long sequence = current & sequenceMask;
+        long timestamp = timeGen() - epoch;
+        if (timestamp > lastTimestamp) {
+            return pack(timestamp, count);
+        }
+        // 时钟回拨超出容忍范围(借用的毫秒不算回拨)
+        if (lastTimestamp - timestamp > borrowMillis) {
+            timestamp = waitClock(lastTimestamp - borrowMillis, lastTimestamp - timestamp);
+            if (timestamp > lastTimestamp) {
+                return pack(timestamp, count);
             }
         }
-        //如果时间戳与上次时间戳相同
-        if (lastTimestamp == timestamp) {
-            // 当前毫秒内，则+1，与sequenceMask确保sequence不会超出上限
-            sequence = (sequence + 1) & sequenceMask;
-            if (sequence == 0) {
-                // 当前毫秒内计数满了，则等待下一秒
-                timestamp = tilNextMillis(lastTimestamp);
+        if (sequence < sequenceMask) {
+            return (lastTimestamp << sequenceBits) | Math.min(sequence + count, sequenceMask);
+        }
+        // 当前毫秒内计数满了, 容忍范围内借用下一毫秒, 否则等待时钟
+        long nextTimestamp = lastTimestamp + 1;
+        if (nextTimestamp - timestamp > borrowMillis) {
+            timestamp = tilNextMillis(nextTimestamp - borrowMillis - 1 + epoch) - epoch;
+        }
+        return pack(Math.max(timestamp, nextTimestamp), count);
+    }
+
+    private long pack(long timestamp, int count) {
+        if (timestamp > maxTimestamp) {
+            throw new IllegalStateException("雪花ID时间戳超出" + Long.toBinaryString(maxTimestamp).length() + "位, 请调整epoch或timestampBits");
+        }
+        return (timestamp << sequenceBits) | (Math.min(count, sequenceMask + 1) - 1);
+    }
+
+    /**
+     * 等待时钟追上target(相对epoch), 最多等待maxWaitMillis, 仍未追上则拒绝生成
+     */
+    private long waitClock(long target, long behindMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        long timestamp = timeGen() - epoch;
+        while (timestamp < target) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new IllegalStateException("Clock moved backwards.  Refusing to generate id for " + behindMillis + " milliseconds");
             }
-        } else {
-            sequence = 0;
+            LockSupport.parkNanos(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(target - timestamp)));
+            timestamp = timeGen() - epoch;
         }
-        lastTimestamp = timestamp;
-        // ID偏移组合生成最终的ID，并返回ID
-        long nextId = ((timestamp - twepoch) << timestampLeftShift) | (processId << datacenterIdShift) | (workerId << workerIdShift) | sequence;
-        return nextId;
+        return timestamp;
+    }
+
+    /**
+     * ID偏移组合生成最终的ID
+     */
+    private long toId(long state) {
+        return ((state >> sequenceBits) << timestampLeftShift) | nodeBits | (state & sequenceMask);
     }
 
     /**
@@ -119,10 +255,18 @@ public class SnowflakeIdHelper {
         return timestamp;
     }
 
-    private long timeGen() {
+    protected long timeGen() {
         return System.currentTimeMillis();
     }
 
+    /**
+     * 线程本地预留的ID区间 [next, end)
+     */
+    private static final class LocalRange {
+        private long next;
+        private long end;
+    }
+
     /**
      * 获取机器编码
      * @return
@@ -134,9 +278,9 @@ public class SnowflakeIdHelper {
         try {
             e = NetworkInterface.getNetworkInterfaces();
         } catch (SocketException e1) {
-            e1.printStackTrace();
+            log.warn("read network interfaces failed", e1);
         }
-        while (e.hasMoreElements()) {
+        while (null != e && e.hasMoreElements()) {
             NetworkInterface ni = e.nextElement();
             sb.append(ni.toString());
         }
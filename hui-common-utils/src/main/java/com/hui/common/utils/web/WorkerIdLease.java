@@ -0,0 +1,75 @@
+package com.hui.common.utils.web;
+
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <code>WorkerIdLease</code>
+ * <desc>
+ * 描述： 基于文件锁的机器ID租约. 在目录下依次尝试锁定 worker-{id}.lock, 第一个锁成功的id即本进程的机器ID,
+ * 锁随进程退出(或close)释放. 只保证共用该目录的进程之间不重复, 跨主机需每台主机配置不同的目录或显式workerId
+ * <desc/>
+ * Creation Time: 2019/12/29 15:40.
+ *
+ * @author Gary.Hu
+ */
+public final class WorkerIdLease implements Closeable {
+
+    @Getter
+    private final long workerId;
+    private final FileChannel channel;
+    private final FileLock lock;
+
+    private WorkerIdLease(long workerId, FileChannel channel, FileLock lock) {
+        this.workerId = workerId;
+        this.channel = channel;
+        this.lock = lock;
+    }
+
+    /**
+     * 租用[0, maxWorkerId]中第一个空闲的机器ID, 全部被占用时抛出IllegalStateException
+     */
+    public static WorkerIdLease acquire(Path dir, long maxWorkerId) throws IOException {
+        Files.createDirectories(dir);
+        for (long id = 0; id <= maxWorkerId; id++) {
+            Path file = dir.resolve("worker-" + id + ".lock");
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                // 本进程已持有
+                lock = null;
+            }
+            if (null == lock) {
+                channel.close();
+                continue;
+            }
+            // 记录持有者, 便于排查
+            channel.truncate(0);
+            channel.write(ByteBuffer.wrap(ManagementFactory.getRuntimeMXBean().getName().getBytes(StandardCharsets.UTF_8)));
+            return new WorkerIdLease(id, channel, lock);
+        }
+        throw new IllegalStateException("机器ID已全部被占用: " + dir + ", 共" + (maxWorkerId + 1) + "个");
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            lock.release();
+        } finally {
+            channel.close();
+        }
+    }
+}
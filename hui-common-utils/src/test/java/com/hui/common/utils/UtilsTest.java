@@ -4,9 +4,38 @@ import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import lombok.Data;
 import lombok.ToString;
+import com.hui.common.utils.file.FileTransferUtil;
+import com.hui.common.utils.file.NioReadFileThreadPoolUtil;
+import com.hui.common.utils.file.NioReadFileUtil;
+import com.hui.common.utils.web.SnowflakeConfig;
+import com.hui.common.utils.web.SnowflakeIdHelper;
+import com.hui.common.utils.web.WorkerIdLease;
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * <code>UtilsTest</code>
@@ -94,6 +123,297 @@ public class UtilsTest {
 
     }
 
+    @Test
+    public void snowflakeIdTest() throws Exception {
+        long[] ids = SnowflakeIdHelper.nextIds(10000);
+        for (int i = 1; i < ids.length; i++) {
+            Assert.assertTrue(ids[i] > ids[i - 1]);
+        }
+        Assert.assertTrue(SnowflakeIdHelper.nextId() > ids[ids.length - 1]);
+
+        // 多线程混用三种取号方式, 全部唯一
+        int threads = 8;
+        int perThread = 20000;
+        Set<Long> all = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    Assert.assertTrue(all.add(SnowflakeIdHelper.nextId()));
+                    Assert.assertTrue(all.add(SnowflakeIdHelper.nextLocalId()));
+                }
+                for (long id : SnowflakeIdHelper.nextIds(perThread)) {
+                    Assert.assertTrue(all.add(id));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        Assert.assertEquals(threads * perThread * 3, all.size());
+    }
+
+    @Test
+    public void snowflakeConfigTest() throws Exception {
+        AtomicLong clock = new AtomicLong(SnowflakeConfig.DEFAULT_EPOCH + 1000);
+        SnowflakeConfig config = new SnowflakeConfig();
+        config.setWorkerBits(4);
+        config.setSequenceBits(8);
+        config.setWorkerId(3L);
+        config.setMaxBorrowMillis(2);
+        config.setMaxWaitMillis(0);
+        SnowflakeIdHelper helper = fixedClock(config, clock);
+        long id = helper.getNextId();
+        Assert.assertEquals(1000, id >> 12);
+        Assert.assertEquals(3, (id >> 8) & 15);
+
+        // 序列用尽时在2ms内借用未来毫秒, 不等待时钟
+        long[] ids = helper.getNextIds(256 * 2);
+        Assert.assertEquals(1002, ids[ids.length - 1] >> 12);
+        // 回拨超出借用范围且不等待: 拒绝生成
+        clock.addAndGet(-10);
+        try {
+            helper.getNextId();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Clock moved backwards"));
+        }
+
+        // WAIT: 等待时钟追上后继续
+        config.setClockBackwards(SnowflakeConfig.ClockBackwards.WAIT);
+        config.setMaxWaitMillis(5000);
+        clock.set(SnowflakeConfig.DEFAULT_EPOCH + 1000);
+        SnowflakeIdHelper waitHelper = fixedClock(config, clock);
+        long last = waitHelper.getNextId();
+        clock.addAndGet(-5);
+        new Thread(() -> {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+            clock.addAndGet(6);
+        }).start();
+        Assert.assertEquals(1001, waitHelper.getNextId() >> 12);
+        Assert.assertEquals(1000, last >> 12);
+
+        config.setSequenceBits(60);
+        try {
+            new SnowflakeIdHelper(config);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains("位布局"));
+        }
+
+        // 文件租约: 同一目录下依次分配, 释放后可重新租用
+        Path dir = Files.createTempDirectory("snowflake");
+        WorkerIdLease first = WorkerIdLease.acquire(dir, 1);
+        WorkerIdLease second = WorkerIdLease.acquire(dir, 1);
+        Assert.assertEquals(0, first.getWorkerId());
+        Assert.assertEquals(1, second.getWorkerId());
+        try {
+            WorkerIdLease.acquire(dir, 1);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().startsWith("机器ID已全部被占用"));
+        }
+        first.close();
+        WorkerIdLease again = WorkerIdLease.acquire(dir, 1);
+        Assert.assertEquals(0, again.getWorkerId());
+        again.close();
+        second.close();
+    }
+
+    private SnowflakeIdHelper fixedClock(SnowflakeConfig config, AtomicLong clock) {
+        return new SnowflakeIdHelper(config) {
+            @Override
+            protected long timeGen() {
+                return clock.get();
+            }
+        };
+    }
+
+    @Test
+    public void nioReadLinesTest() throws Exception {
+        Path file = Files.createTempFile("read_lines", ".txt");
+        StringBuilder content = new StringBuilder();
+        long expectedBytes = 0;
+        for (int i = 0; i < 10000; i++) {
+            String line = "line-" + i + (i % 7 == 0 ? "-中文" : "");
+            content.append(line).append(i % 3 == 0 ? "\r\n" : "\n");
+            expectedBytes += line.getBytes(StandardCharsets.UTF_8).length;
+        }
+        content.append("last");
+        expectedBytes += 4;
+        Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+
+        // 小块强制切分成多块并行扫描
+        LongAdder bytes = new LongAdder();
+        Set<String> lines = ConcurrentHashMap.newKeySet();
+        byte[] prefix = "line-7".getBytes(StandardCharsets.UTF_8);
+        LongAdder prefixed = new LongAdder();
+        long count = NioReadFileUtil.readLines(file, line -> {
+            bytes.add(line.length());
+            lines.add(line.toString());
+            if (line.startsWith(prefix)) {
+                prefixed.increment();
+            }
+        }, ForkJoinPool.commonPool(), 1000);
+        Assert.assertEquals(10001, count);
+        Assert.assertEquals(10001, lines.size());
+        Assert.assertEquals(expectedBytes, bytes.sum());
+        Assert.assertTrue(lines.contains("line-7-中文"));
+        Assert.assertTrue(lines.contains("last"));
+        // line-7, line-7x, line-7xx, line-7xxx
+        Assert.assertEquals(1 + 10 + 100 + 1000, prefixed.sum());
+
+        Assert.assertEquals(count, NioReadFileUtil.readLines(file, line -> { }));
+        try {
+            NioReadFileUtil.readLines(file, line -> {
+                throw new IOException("stop");
+            });
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertEquals("stop", e.getMessage());
+        }
+        try {
+            NioReadFileUtil.readLines(file, line -> { }, ForkJoinPool.commonPool(), 0);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("chunkSize至少为1", e.getMessage());
+        }
+        Files.delete(file);
+    }
+
+    @Test
+    public void nioPipelineTest() throws Exception {
+        Path input = Files.createTempFile("pipeline_in", ".txt");
+        Path output = Files.createTempFile("pipeline_out", ".txt");
+        StringBuilder content = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            content.append("line-").append(i).append(i % 3 == 0 ? "\r\n" : "\n");
+            // 丢弃奇数行, 偶数行加前缀
+            if (i % 2 == 0) {
+                expected.append("#line-").append(i).append('\n');
+            }
+        }
+        content.append("last");
+        expected.append("#last\n");
+        Files.write(input, content.toString().getBytes(StandardCharsets.UTF_8));
+        byte[] odd = "13579".getBytes(StandardCharsets.UTF_8);
+        NioReadFileThreadPoolUtil.LineProcessor processor = (line, out) -> {
+            byte last = line.byteAt(line.length() - 1);
+            for (byte b : odd) {
+                if (b == last && line.startsWith("line-".getBytes(StandardCharsets.UTF_8))) {
+                    return;
+                }
+            }
+            out.write((byte) '#').writeLine(line);
+        };
+
+        // 小缓冲区强制切分成多批, 并覆盖跨缓冲区的半行
+        NioReadFileThreadPoolUtil pipeline = new NioReadFileThreadPoolUtil();
+        pipeline.setWorkers(4);
+        pipeline.setReadBufferSize(1000);
+        pipeline.setBufferCount(3);
+        Assert.assertEquals(20001, pipeline.process(input, output, processor));
+        Assert.assertEquals(expected.toString(), new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+
+        pipeline.setOrdered(false);
+        Assert.assertEquals(20001, pipeline.process(input, output, processor));
+        List<String> actual = Files.readAllLines(output, StandardCharsets.UTF_8);
+        Assert.assertEquals(new HashSet<>(Arrays.asList(expected.toString().split("\n"))), new HashSet<>(actual));
+        Assert.assertEquals(10001, actual.size());
+
+        try {
+            pipeline.process(input, output, (line, out) -> {
+                if (line.getFilePosition() > 50000) {
+                    throw new IOException("stop");
+                }
+            });
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertEquals("stop", e.getMessage());
+        }
+        pipeline.setReadBufferSize(4);
+        try {
+            pipeline.process(input, output, processor);
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().startsWith("单行超过读缓冲区大小"));
+        }
+        Files.delete(input);
+        Files.delete(output);
+    }
+
+    @Test
+    public void fileTransferTest() throws Exception {
+        Path source = Files.createTempFile("transfer_in", ".txt");
+        Path target = Files.createTempFile("transfer_out", ".txt");
+        StringBuilder content = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            String line = "line-" + i + (i % 3 == 0 ? "\r\n" : "\n");
+            content.append(line);
+            if (i % 10 != 3) {
+                expected.append(line);
+            }
+        }
+        content.append("last");
+        expected.append("last");
+        byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+        Files.write(source, bytes);
+
+        Assert.assertEquals(bytes.length, FileTransferUtil.copy(source, target));
+        Assert.assertArrayEquals(bytes, Files.readAllBytes(target));
+
+        // 区间复制到target的指定位置, 不截断target
+        Assert.assertEquals(10, FileTransferUtil.copyRange(source, 0, 10, target, 100));
+        byte[] copied = Files.readAllBytes(target);
+        Assert.assertEquals(bytes.length, copied.length);
+        Assert.assertEquals("line-0\r\nli", new String(copied, 100, 10, StandardCharsets.UTF_8));
+        Assert.assertEquals(4, FileTransferUtil.copyRange(source, bytes.length - 4, 100, target, 0));
+        // count为Long.MAX_VALUE时复制到源文件末尾
+        Assert.assertEquals(bytes.length - 1, FileTransferUtil.copyRange(source, 1, Long.MAX_VALUE, target, 0));
+        Assert.assertArrayEquals(Arrays.copyOfRange(bytes, 1, bytes.length),
+                Arrays.copyOf(Files.readAllBytes(target), bytes.length - 1));
+        try {
+            FileTransferUtil.copyRange(source, -1, 10, target, 0);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("position与count不能为负数", e.getMessage());
+        }
+
+        // 分段写入空文件: 先写超出文件末尾的后段, 再补前段
+        Path segments = Files.createTempFile("transfer_segments", ".txt");
+        Assert.assertEquals(4, FileTransferUtil.copyRange(source, bytes.length - 4, 4, segments, 5));
+        Assert.assertEquals(5, FileTransferUtil.copyRange(source, 0, 5, segments, 0));
+        Assert.assertEquals("line-last", new String(Files.readAllBytes(segments), StandardCharsets.UTF_8));
+        Files.delete(segments);
+
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        Assert.assertEquals(bytes.length, FileTransferUtil.send(source, Channels.newChannel(sent)));
+        Assert.assertArrayEquals(bytes, sent.toByteArray());
+
+        // 保留的行连同原换行符写出, 小缓冲区覆盖跨缓冲区的半行
+        long kept = FileTransferUtil.copyLines(source, target, line -> line.byteAt(line.length() - 1) != '3', 100);
+        Assert.assertEquals(4501, kept);
+        Assert.assertEquals(expected.toString(), new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+        try {
+            FileTransferUtil.copyLines(source, target, line -> true, 4);
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().startsWith("单行超过读缓冲区大小"));
+        }
+
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            NioReadFileUtil.readByLine(in, null, out, null, "UTF-8");
+        }
+        Assert.assertArrayEquals(bytes, Files.readAllBytes(target));
+        Files.delete(source);
+        Files.delete(target);
+    }
+
     @Data
     @ToString
     static class ResponseDto<T> {